@@ -9,6 +9,8 @@ plugins {
     // Apply the application plugin to add support for building a CLI application in Java.
     application
     eclipse
+    // Microbenchmarks live in src/jmh/java; run them with ./gradlew jmh
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 repositories {
@@ -41,7 +43,68 @@ application {
     mainClass = "org.robustov.Main"
 }
 
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+}
+
+// The benchmarks run against the positions bundled in the repository root.
+tasks.named<ProcessResources>("processJmhResources") {
+    from(rootProject.layout.projectDirectory) {
+        include("starting_position.json", "game.json", "mate.json")
+    }
+}
+
 tasks.named<Test>("test") {
     // Use JUnit Platform for unit tests.
     useJUnitPlatform()
 }
+
+tasks.register<JavaExec>("perft") {
+    // Pass options with --args, e.g. ./gradlew perft --args="--load ../game.json --depth 4 --hash 64"
+    description = "Counts leaf nodes of the legal move tree and prints per-move divide counts."
+    group = "verification"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "org.robustov.Perft"
+}
+
+tasks.register<JavaExec>("solve") {
+    // e.g. ./gradlew solve --args="--moves 3 ../mate.json puzzles/"
+    description = "Finds forced eliminations in puzzle positions."
+    group = "application"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "org.robustov.Solver"
+}
+
+tasks.register<JavaExec>("analyze") {
+    // e.g. ./gradlew analyze --args="--load ../game.json --depth 6 --threads 1,2,4,8"
+    description = "Analyses a position with the multi-threaded search and reports scaling per thread count."
+    group = "application"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "org.robustov.Analyze"
+}
+
+tasks.register<JavaExec>("tournament") {
+    // e.g. ./gradlew tournament --args="--first paranoid:4000 --second paranoid:2000 --games 2000"
+    description = "Plays engine-versus-engine games with seat rotation and reports placements and an SPRT."
+    group = "verification"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "org.robustov.Tournament"
+}
+
+tasks.register<JavaExec>("book") {
+    // e.g. ./gradlew book --args="--selfplay 5000 --plies 16 --output ../book.fcbook"
+    description = "Builds an opening book from self-play games and game archives."
+    group = "application"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "org.robustov.Book"
+}
+
+tasks.register<JavaExec>("tablebase") {
+    // e.g. ./gradlew tablebase --args="--material kqk,krk --directory ../tablebases"
+    description = "Generates the king and queen or rook against king endgame tablebases."
+    group = "application"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "org.robustov.Endgames"
+}
@@ -0,0 +1,31 @@
+package org.robustov.chess.benchmark;
+
+import org.robustov.chess.model.Board;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/** Loads the positions bundled with the game, copied onto the benchmark classpath by the build. */
+final class BenchmarkPositions {
+  private BenchmarkPositions() {
+  }
+
+  static String json(String name) {
+    try (InputStream in = BenchmarkPositions.class.getResourceAsStream("/" + name)) {
+      if (in == null) {
+        throw new IllegalArgumentException("Position not found on the classpath: " + name);
+      }
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static Board board(String name) {
+    Board board = new Board();
+    board.loadPosition(json(name));
+    return board;
+  }
+}
@@ -0,0 +1,80 @@
+package org.robustov.chess.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+import org.robustov.chess.model.Position;
+
+import java.util.concurrent.TimeUnit;
+
+/** Check detection, legal move search and playing a move on the bundled positions. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+  @Param({ "starting_position.json", "game.json", "mate.json" })
+  public String position;
+
+  private Board board;
+  private MoveList moves;
+  private Position source;
+  private Position target;
+
+  @Setup
+  public void setUp() {
+    board = BenchmarkPositions.board(position);
+    moves = new MoveList();
+    board.generateLegalMoves(board.getCurrentPlayer(), moves);
+    if (moves.isEmpty()) {
+      throw new IllegalStateException("No legal move in " + position);
+    }
+    source = Position.of(Move.from(moves.get(0)));
+    target = Position.of(Move.to(moves.get(0)));
+  }
+
+  @Benchmark
+  public void isKingInCheck(Blackhole blackhole) {
+    for (Color color : Color.values()) {
+      blackhole.consume(board.isKingInCheck(color));
+    }
+  }
+
+  @Benchmark
+  public void hasLegalMoves(Blackhole blackhole) {
+    for (Color color : Color.values()) {
+      blackhole.consume(board.hasLegalMoves(color));
+    }
+  }
+
+  @Benchmark
+  public int generateLegalMoves() {
+    moves.clear();
+    board.generateLegalMoves(board.getCurrentPlayer(), moves);
+    return moves.size();
+  }
+
+  /** A validated move followed by taking it back, so every invocation sees the same position. */
+  @Benchmark
+  public long movePiece() {
+    board.movePiece(source, target);
+    long key = board.getZobristKey();
+    board.unmakeMove();
+    return key;
+  }
+}
@@ -0,0 +1,64 @@
+package org.robustov.chess.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Piece;
+import org.robustov.chess.model.PieceType;
+import org.robustov.chess.model.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** {@code Piece.getValidMoves} for every piece of one type in a bundled position. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceMovesBenchmark {
+  @Param({ "starting_position.json", "game.json", "mate.json" })
+  public String position;
+
+  @Param({ "PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING" })
+  public PieceType type;
+
+  private Board board;
+  private Piece[] pieces;
+  private Position[] squares;
+
+  @Setup
+  public void setUp() {
+    board = BenchmarkPositions.board(position);
+    List<Piece> found = new ArrayList<>();
+    List<Position> at = new ArrayList<>();
+    for (int index = 0; index < 256; index++) {
+      Piece piece = board.getPiece(index).orElse(null);
+      if (piece != null && piece.getType() == type) {
+        found.add(piece);
+        at.add(Position.of(index));
+      }
+    }
+    pieces = found.toArray(new Piece[0]);
+    squares = at.toArray(new Position[0]);
+  }
+
+  @Benchmark
+  public void validMoves(Blackhole blackhole) {
+    for (int i = 0; i < pieces.length; i++) {
+      blackhole.consume(pieces[i].getValidMoves(squares[i], board));
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package org.robustov.chess.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robustov.chess.model.Board;
+
+import java.util.concurrent.TimeUnit;
+
+/** JSON save and load of the bundled positions. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+  @Param({ "starting_position.json", "game.json", "mate.json" })
+  public String position;
+
+  private Board board;
+  private String json;
+
+  @Setup
+  public void setUp() {
+    json = BenchmarkPositions.json(position);
+    board = new Board();
+    board.loadPosition(json);
+  }
+
+  @Benchmark
+  public String savePosition() {
+    return board.savePosition();
+  }
+
+  @Benchmark
+  public Board loadPosition() {
+    board.loadPosition(json);
+    return board;
+  }
+}
@@ -0,0 +1,109 @@
+package org.robustov;
+
+import org.robustov.chess.engine.AnalysisResult;
+import org.robustov.chess.engine.ParallelSearch;
+import org.robustov.chess.engine.SearchLimits;
+import org.robustov.chess.model.Board;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analyses a position with the multi-threaded search. Given several thread counts, it
+ * searches the same position once per count with a fresh hash table and prints the
+ * speedup and per-thread efficiency against the first count, both for nodes per second
+ * and for the time to reach the requested depth. The first count runs once more
+ * beforehand, untimed, to warm up the JIT.
+ */
+public class Analyze {
+  public static void main(String[] args) {
+    Options options = createOptions();
+    try {
+      CommandLine cmd = new DefaultParser().parse(options, args);
+      if (cmd.hasOption("help")) {
+        new HelpFormatter().printHelp("analyze", options);
+        return;
+      }
+      Path file = Path.of(cmd.getOptionValue("load", "../game.json"));
+      int depth = Integer.parseInt(cmd.getOptionValue("depth", String.valueOf(SearchLimits.MAX_DEPTH)));
+      long millis = Long.parseLong(cmd.getOptionValue("movetime", cmd.hasOption("depth") ? "0" : "5000"));
+      int hashMb = Integer.parseInt(cmd.getOptionValue("hash", "64"));
+      List<Integer> counts = parseThreads(cmd.getOptionValue("threads",
+          String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+      Board board = new Board();
+      board.loadFile(file);
+      run(board, new SearchLimits(depth, millis, 0), counts, hashMb);
+    } catch (ParseException | IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      new HelpFormatter().printHelp("analyze", options);
+      System.exit(1);
+    } catch (IOException e) {
+      System.err.println("Error reading position: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static Options createOptions() {
+    Options options = new Options();
+    options.addOption(Option.builder("l").longOpt("load").hasArg(true).argName("file")
+        .desc("Position to analyse (defaults to ../game.json)").build());
+    options.addOption(Option.builder("d").longOpt("depth").hasArg(true).argName("plies")
+        .desc("Depth to search to").build());
+    options.addOption(Option.builder("m").longOpt("movetime").hasArg(true).argName("ms")
+        .desc("Time per search in milliseconds (defaults to 5000 unless a depth is given)").build());
+    options.addOption(Option.builder("t").longOpt("threads").hasArg(true).argName("counts")
+        .desc("Comma-separated thread counts, e.g. 1,2,4,8 (defaults to the number of processors)").build());
+    options.addOption(Option.builder("H").longOpt("hash").hasArg(true).argName("mb")
+        .desc("Shared hash table size in megabytes (defaults to 64)").build());
+    options.addOption(Option.builder("h").longOpt("help").desc("Print this help").build());
+    return options;
+  }
+
+  private static List<Integer> parseThreads(String value) {
+    List<Integer> counts = new ArrayList<>();
+    for (String part : value.split(",")) {
+      int count = Integer.parseInt(part.trim());
+      if (count < 1) {
+        throw new IllegalArgumentException("Thread counts must be positive: " + count);
+      }
+      counts.add(count);
+    }
+    return counts;
+  }
+
+  private static void run(Board board, SearchLimits limits, List<Integer> counts, int hashMb) {
+    AnalysisResult baseline = null;
+    int baseThreads = counts.get(0);
+    // Warm up the JIT first, or the first count looks slower than it is.
+    new ParallelSearch(baseThreads, hashMb).search(board, limits);
+    for (int threads : counts) {
+      AnalysisResult result = new ParallelSearch(threads, hashMb).search(board, limits);
+      System.out.println(result);
+      StringBuilder perThread = new StringBuilder("  nodes per thread:");
+      for (int i = 0; i < result.getThreads(); i++) {
+        perThread.append(' ').append(result.getThreadNodes(i));
+      }
+      System.out.println(perThread);
+      if (baseline == null) {
+        baseline = result;
+        continue;
+      }
+      double cores = (double) threads / baseThreads;
+      double npsSpeedup = (double) result.getNodesPerSecond() / Math.max(1, baseline.getNodesPerSecond());
+      System.out.printf("  nps speedup %.2f (%.0f%% per core)%n", npsSpeedup, 100 * npsSpeedup / cores);
+      // Time to depth only compares like with like when both runs stopped at the same depth.
+      if (limits.getTimeMillis() == 0 && result.getDepth() == baseline.getDepth()) {
+        double speedup = (double) baseline.getElapsedNanos() / Math.max(1, result.getElapsedNanos());
+        System.out.printf("  time-to-depth speedup %.2f (%.0f%% per core)%n", speedup, 100 * speedup / cores);
+      }
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package org.robustov;
+
+import org.robustov.chess.engine.OpeningBook;
+import org.robustov.chess.engine.OpeningBookBuilder;
+import org.robustov.chess.engine.ParanoidSearch;
+import org.robustov.chess.engine.SearchLimits;
+import org.robustov.chess.engine.TranspositionTable;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds an {@link OpeningBook} from self-play games and game archives, or shows the
+ * book moves for a position. An archive is a text file with one game per line, its
+ * moves written like {@code b1-c3 d13-e14} and played from the start position.
+ * Self-play games follow the search with a node budget varied at random from move to
+ * move, so that games branch apart; optional random opening plies widen them further
+ * but do not go into the book themselves.
+ */
+public class Book {
+  public static void main(String[] args) {
+    Options options = createOptions();
+    try {
+      CommandLine cmd = new DefaultParser().parse(options, args);
+      if (cmd.hasOption("help")) {
+        new HelpFormatter().printHelp("book [options] [archive]...", options);
+        return;
+      }
+      Path output = Path.of(cmd.getOptionValue("output", "../book.fcbook"));
+      Board start = new Board();
+      start.loadFile(Path.of(cmd.getOptionValue("load", "../starting_position.json")));
+      if (cmd.hasOption("query")) {
+        query(output, start);
+        return;
+      }
+
+      int games = Integer.parseInt(cmd.getOptionValue("selfplay", "0"));
+      int plies = Integer.parseInt(cmd.getOptionValue("plies", "16"));
+      int randomPlies = Integer.parseInt(cmd.getOptionValue("random-plies", "0"));
+      long nodes = Long.parseLong(cmd.getOptionValue("nodes", "2000"));
+      int threads = Integer.parseInt(cmd.getOptionValue("concurrency",
+          String.valueOf(Runtime.getRuntime().availableProcessors())));
+      if (games < 0 || plies < 1 || randomPlies < 0 || nodes < 1 || threads < 1) {
+        throw new IllegalArgumentException("counts must be positive");
+      }
+      if (games == 0 && cmd.getArgList().isEmpty()) {
+        throw new IllegalArgumentException("nothing to build from: give --selfplay or archive files");
+      }
+
+      long startTime = System.nanoTime();
+      OpeningBookBuilder builder = new OpeningBookBuilder();
+      for (String archive : cmd.getArgList()) {
+        int read = readArchive(Path.of(archive), start, plies, builder);
+        System.out.println("Read " + read + " games from " + archive);
+      }
+      if (games > 0) {
+        selfPlay(start, games, plies, randomPlies, nodes, threads, builder);
+      }
+      builder.write(output);
+      System.out.println("Positions: " + builder.positions());
+      System.out.println("Written: " + output + " (" + Files.size(output) + " bytes)");
+      System.out.printf("Time: %.3f s%n", (System.nanoTime() - startTime) / 1e9);
+    } catch (ParseException | IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      new HelpFormatter().printHelp("book [options] [archive]...", options);
+      System.exit(1);
+    } catch (IOException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static Options createOptions() {
+    Options options = new Options();
+    options.addOption(Option.builder("o").longOpt("output").hasArg(true).argName("file")
+        .desc("Book file to write or query (defaults to ../book.fcbook)").build());
+    options.addOption(Option.builder("l").longOpt("load").hasArg(true).argName("file")
+        .desc("Start position (defaults to ../starting_position.json)").build());
+    options.addOption(Option.builder("s").longOpt("selfplay").hasArg(true).argName("games")
+        .desc("Number of self-play games to add (defaults to 0)").build());
+    options.addOption(Option.builder("p").longOpt("plies").hasArg(true).argName("plies")
+        .desc("Plies of each game that go into the book (defaults to 16)").build());
+    options.addOption(Option.builder("r").longOpt("random-plies").hasArg(true).argName("plies")
+        .desc("Random plies that open each self-play game, not stored (defaults to 0)").build());
+    options.addOption(Option.builder("n").longOpt("nodes").hasArg(true).argName("nodes")
+        .desc("Average search nodes per self-play move (defaults to 2000)").build());
+    options.addOption(Option.builder("c").longOpt("concurrency").hasArg(true).argName("threads")
+        .desc("Self-play games played at once (defaults to the number of processors)").build());
+    options.addOption(Option.builder("q").longOpt("query")
+        .desc("Print the book moves for the start position instead of building").build());
+    options.addOption(Option.builder("h").longOpt("help").desc("Print this help").build());
+    return options;
+  }
+
+  private static void query(Path file, Board board) throws IOException {
+    try (OpeningBook book = OpeningBook.open(file)) {
+      List<OpeningBook.BookMove> moves = book.lookup(board);
+      System.out.println("Entries: " + book.size());
+      System.out.println(moves.isEmpty() ? "Position not in book" : "Book moves: " + moves);
+    }
+  }
+
+  private static int readArchive(Path file, Board start, int plies, OpeningBookBuilder builder) throws IOException {
+    int games = 0;
+    MoveList legal = new MoveList();
+    for (String line : Files.readAllLines(file)) {
+      String[] moves = line.trim().split("\\s+");
+      if (moves[0].isEmpty()) {
+        continue;
+      }
+      Board board = start.copy();
+      for (int i = 0; i < moves.length && i < plies; i++) {
+        legal.clear();
+        board.generateLegalMoves(board.getCurrentPlayer(), legal);
+        int move = Move.parse(moves[i], legal);
+        if (move == Move.NONE) {
+          throw new IllegalArgumentException(file + ": illegal move " + moves[i] + " in game " + (games + 1));
+        }
+        builder.add(board, move);
+        board.makeMove(move);
+      }
+      games++;
+    }
+    return games;
+  }
+
+  private static void selfPlay(Board start, int games, int plies, int randomPlies, long nodes, int threads,
+      OpeningBookBuilder builder) {
+    AtomicInteger played = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    for (int game = 0; game < games; game++) {
+      long seed = game;
+      pool.execute(() -> {
+        Board board = start.copy();
+        ParanoidSearch search = new ParanoidSearch(new TranspositionTable(4));
+        SplittableRandom random = new SplittableRandom(seed);
+        MoveList moves = new MoveList();
+        for (int ply = 0; ply < plies; ply++) {
+          int move;
+          if (ply < randomPlies) {
+            moves.clear();
+            board.generateLegalMoves(board.getCurrentPlayer(), moves);
+            move = moves.isEmpty() ? Move.NONE : moves.get(random.nextInt(moves.size()));
+          } else {
+            long budget = nodes / 2 + random.nextLong(nodes + 1);
+            move = search.search(board, SearchLimits.nodes(Math.max(1, budget))).getBestMove();
+            if (move != Move.NONE) {
+              builder.add(board, move);
+            }
+          }
+          if (move == Move.NONE) {
+            break;
+          }
+          board.makeMove(move);
+        }
+        int done = played.incrementAndGet();
+        if (done % 100 == 0) {
+          System.out.println("Self-play games: " + done);
+        }
+      });
+    }
+    pool.shutdown();
+    try {
+      pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
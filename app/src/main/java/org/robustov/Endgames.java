@@ -0,0 +1,124 @@
+package org.robustov;
+
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+import org.robustov.chess.model.Tablebase;
+import org.robustov.chess.model.TablebaseGenerator;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Generates the endgame tablebases into a directory, or probes a saved position. Tables
+ * that already exist are kept; an interrupted generation resumes from its checkpoint
+ * when run again.
+ */
+public class Endgames {
+  public static void main(String[] args) {
+    Options options = createOptions();
+    try {
+      CommandLine cmd = new DefaultParser().parse(options, args);
+      if (cmd.hasOption("help")) {
+        new HelpFormatter().printHelp("endgames [options]", options);
+        return;
+      }
+      Path directory = Path.of(cmd.getOptionValue("directory", "../tablebases"));
+      if (cmd.hasOption("probe")) {
+        probe(directory, Path.of(cmd.getOptionValue("probe")));
+        return;
+      }
+
+      int threads = Integer.parseInt(cmd.getOptionValue("threads",
+          String.valueOf(Runtime.getRuntime().availableProcessors())));
+      long checkpoint = Long.parseLong(cmd.getOptionValue("checkpoint", "60"));
+      if (threads < 1 || checkpoint < 0) {
+        throw new IllegalArgumentException("thread count must be positive and the checkpoint interval not negative");
+      }
+      List<Tablebase.Material> materials = new ArrayList<>();
+      for (String name : cmd.getOptionValue("material", "kqk,krk").split(",")) {
+        materials.add(Tablebase.Material.valueOf(name.trim().toUpperCase()));
+      }
+
+      Files.createDirectories(directory);
+      for (Tablebase.Material material : materials) {
+        generate(material, directory.resolve(material.getFileName()), threads, checkpoint);
+      }
+    } catch (ParseException | IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      new HelpFormatter().printHelp("endgames [options]", options);
+      System.exit(1);
+    } catch (IOException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static Options createOptions() {
+    Options options = new Options();
+    options.addOption(Option.builder("d").longOpt("directory").hasArg(true).argName("dir")
+        .desc("Directory of the tables (defaults to ../tablebases)").build());
+    options.addOption(Option.builder("m").longOpt("material").hasArg(true).argName("list")
+        .desc("Comma-separated tables to generate (defaults to kqk,krk)").build());
+    options.addOption(Option.builder("t").longOpt("threads").hasArg(true).argName("count")
+        .desc("Generator threads (defaults to the number of processors)").build());
+    options.addOption(Option.builder("c").longOpt("checkpoint").hasArg(true).argName("seconds")
+        .desc("Seconds between checkpoints of a running generation (defaults to 60)").build());
+    options.addOption(Option.builder("p").longOpt("probe").hasArg(true).argName("file")
+        .desc("Probe the position saved in a file instead of generating").build());
+    options.addOption(Option.builder("h").longOpt("help").desc("Print this help").build());
+    return options;
+  }
+
+  private static void generate(Tablebase.Material material, Path file, int threads, long checkpoint)
+      throws IOException {
+    if (Files.exists(file)) {
+      System.out.println(material + ": " + file + " exists, skipped");
+      return;
+    }
+    long start = System.nanoTime();
+    TablebaseGenerator generator = new TablebaseGenerator(material, threads);
+    generator.setProgressListener((distance, decided) -> {
+      if (decided > 0) {
+        System.out.printf("%s: distance %d, %d positions%n", material, distance + 1, decided);
+      }
+    });
+    generator.generate(file, checkpoint);
+    System.out.printf("%s: %d wins, %d draws, %d losses, longest %d plies%n", material,
+        generator.count(Tablebase.Outcome.WIN), generator.count(Tablebase.Outcome.DRAW),
+        generator.count(Tablebase.Outcome.LOSS), generator.maxDistance());
+    System.out.printf("%s: written %s (%d bytes) in %.3f s%n", material, file, Files.size(file),
+        (System.nanoTime() - start) / 1e9);
+  }
+
+  private static void probe(Path directory, Path position) throws IOException {
+    Board board = new Board();
+    board.loadFile(position);
+    try (Tablebase tablebase = Tablebase.open(directory)) {
+      Optional<Tablebase.Result> result = board.probeTablebase(tablebase);
+      if (result.isEmpty()) {
+        System.out.println("Position not in the tablebases " + tablebase.getMaterials());
+        return;
+      }
+      System.out.println(board.getCurrentPlayer() + " to move: " + result.get());
+      MoveList moves = new MoveList();
+      board.generateLegalMoves(board.getCurrentPlayer(), moves);
+      for (int i = 0; i < moves.size(); i++) {
+        board.makeMove(moves.get(i));
+        System.out.println("  " + Move.toString(moves.get(i)) + ": " + board.probeTablebase(tablebase)
+            .map(after -> board.getCurrentPlayer() + " to move, " + after)
+            .orElse("game over or king against king"));
+        board.unmakeMove();
+      }
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package org.robustov;
 
+import org.robustov.chess.engine.EngineProtocol;
+import org.robustov.chess.engine.OpeningBook;
 import org.robustov.chess.model.Board;
 import org.robustov.chess.ui.ChessFrame;
 import org.apache.commons.cli.CommandLine;
@@ -9,54 +11,119 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import javax.swing.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class Main {
   public static void main(String[] args) {
-    SwingUtilities.invokeLater(() -> {
-      Board board = new Board();
-      Options options = createOptions();
-
+    Options options = createOptions();
+    CommandLine cmd;
+    try {
+      CommandLineParser parser = new DefaultParser();
+      cmd = parser.parse(options, args);
+    } catch (ParseException e) {
+      System.err.println("Error parsing command line arguments: " + e.getMessage());
+      System.err.println("Usage: [--load <filename>] [--book <file>] [--engine [--threads <count>] [--hash <mb>]]");
+      System.exit(1);
+      return;
+    }
+    OpeningBook book = null;
+    if (cmd.hasOption("book")) {
+      Path bookPath = resolveFilePath(cmd.getOptionValue("book"));
       try {
-        CommandLineParser parser = new DefaultParser();
-        CommandLine cmd = parser.parse(options, args);
+        book = OpeningBook.open(bookPath);
+      } catch (IOException e) {
+        System.err.println("Error opening book " + bookPath.toAbsolutePath() + ": " + e.getMessage());
+        System.exit(1);
+      }
+    }
+    OpeningBook openingBook = book;
+
+    // The engine protocol never touches AWT, so it starts fast and runs on headless servers.
+    if (cmd.hasOption("engine")) {
+      runEngine(cmd, openingBook);
+      return;
+    }
 
-        String filename = cmd.hasOption("load") ? cmd.getOptionValue("load") : "../game.json";
-        Path filePath = resolveFilePath(filename);
+    SwingUtilities.invokeLater(() -> {
+      Board board = new Board();
+      String filename = cmd.hasOption("load") ? cmd.getOptionValue("load") : "../game.json";
+      Path filePath = resolveFilePath(filename);
 
-        if (Files.exists(filePath)) {
-          try {
-            String json = Files.readString(filePath);
-            board.loadPosition(json);
-            System.out.println("Loaded game from " + filePath.toAbsolutePath());
-          } catch (Exception e) {
-            System.err.println("Error loading game from " + filePath.toAbsolutePath() + ": " + e.getMessage());
-            System.exit(1);
-          }
-        } else {
-          System.err.println("File not found: " + filePath.toAbsolutePath());
+      if (Files.exists(filePath)) {
+        try {
+          board.loadFile(filePath);
+          System.out.println("Loaded game from " + filePath.toAbsolutePath());
+        } catch (Exception e) {
+          System.err.println("Error loading game from " + filePath.toAbsolutePath() + ": " + e.getMessage());
           System.exit(1);
         }
-      } catch (ParseException e) {
-        System.err.println("Error parsing command line arguments: " + e.getMessage());
-        System.err.println("Usage: [--load <filename>]");
+      } else {
+        System.err.println("File not found: " + filePath.toAbsolutePath());
         System.exit(1);
       }
 
       ChessFrame frame = new ChessFrame(board);
+      frame.setOpeningBook(openingBook);
       frame.setVisible(true);
     });
   }
 
+  private static void runEngine(CommandLine cmd, OpeningBook book) {
+    try {
+      int threads = Integer.parseInt(cmd.getOptionValue("threads", "1"));
+      int hashMb = Integer.parseInt(cmd.getOptionValue("hash", "16"));
+      BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+      EngineProtocol protocol = new EngineProtocol(in, System.out,
+          resolveFilePath("../starting_position.json"), threads, hashMb);
+      protocol.setBook(book);
+      if (cmd.hasOption("load")) {
+        protocol.setPosition(resolveFilePath(cmd.getOptionValue("load")));
+      }
+      protocol.run();
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    } catch (IOException e) {
+      System.err.println("Error reading input: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
   private static Options createOptions() {
     Options options = new Options();
     options.addOption(Option.builder("l")
         .longOpt("load")
         .hasArg(true)
         .argName("file")
-        .desc("Load game from JSON file (defaults to ../game.json)")
+        .desc("Load game from a JSON or " + Board.BINARY_EXTENSION + " file (defaults to ../game.json)")
+        .build());
+    options.addOption(Option.builder("b")
+        .longOpt("book")
+        .hasArg(true)
+        .argName("file")
+        .desc("Opening book for the engine and the move hints")
+        .build());
+    options.addOption(Option.builder("e")
+        .longOpt("engine")
+        .desc("Speak the text engine protocol on stdin/stdout instead of opening a window")
+        .build());
+    options.addOption(Option.builder("t")
+        .longOpt("threads")
+        .hasArg(true)
+        .argName("count")
+        .desc("Engine search threads (defaults to 1)")
+        .build());
+    options.addOption(Option.builder("H")
+        .longOpt("hash")
+        .hasArg(true)
+        .argName("mb")
+        .desc("Engine hash table size in megabytes (defaults to 16)")
         .build());
     return options;
   }
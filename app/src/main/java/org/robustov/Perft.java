@@ -0,0 +1,205 @@
+package org.robustov;
+
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth. Every root move is
+ * searched as its own fork/join task on a copy of the board and its count is printed
+ * ("divide"), so two versions of the move generator can be compared move by move.
+ * Eliminations and skipped turns happen exactly as in a real game.
+ */
+public class Perft {
+  private final int depth;
+  private final PerftTable table;
+
+  Perft(int depth, PerftTable table) {
+    this.depth = depth;
+    this.table = table;
+  }
+
+  public static void main(String[] args) {
+    Options options = createOptions();
+    try {
+      CommandLine cmd = new DefaultParser().parse(options, args);
+      if (cmd.hasOption("help")) {
+        new HelpFormatter().printHelp("perft", options);
+        return;
+      }
+      Path file = Path.of(cmd.getOptionValue("load", "../starting_position.json"));
+      int depth = Integer.parseInt(cmd.getOptionValue("depth", "3"));
+      int threads = Integer.parseInt(cmd.getOptionValue("threads",
+          String.valueOf(Runtime.getRuntime().availableProcessors())));
+      int hashMb = Integer.parseInt(cmd.getOptionValue("hash", "0"));
+      if (depth < 1 || threads < 1 || hashMb < 0) {
+        throw new IllegalArgumentException("depth and threads must be positive, hash must not be negative");
+      }
+
+      Board board = new Board();
+      board.loadFile(file);
+      PerftTable table = hashMb > 0 ? new PerftTable(hashMb) : null;
+      new Perft(depth, table).run(board, threads);
+    } catch (ParseException | IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      new HelpFormatter().printHelp("perft", options);
+      System.exit(1);
+    } catch (IOException e) {
+      System.err.println("Error reading position: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static Options createOptions() {
+    Options options = new Options();
+    options.addOption(Option.builder("l").longOpt("load").hasArg(true).argName("file")
+        .desc("Position to count from (defaults to ../starting_position.json)").build());
+    options.addOption(Option.builder("d").longOpt("depth").hasArg(true).argName("plies")
+        .desc("Search depth (defaults to 3)").build());
+    options.addOption(Option.builder("t").longOpt("threads").hasArg(true).argName("count")
+        .desc("Worker threads (defaults to the number of processors)").build());
+    options.addOption(Option.builder("H").longOpt("hash").hasArg(true).argName("mb")
+        .desc("Size of the subtree hash table in megabytes, 0 disables it (default)").build());
+    options.addOption(Option.builder("h").longOpt("help").desc("Print this help").build());
+    return options;
+  }
+
+  void run(Board board, int threads) {
+    MoveList rootMoves = new MoveList();
+    board.generateLegalMoves(board.getCurrentPlayer(), rootMoves);
+
+    long start = System.nanoTime();
+    long[] counts = divide(board, rootMoves, threads);
+    long elapsed = System.nanoTime() - start;
+
+    long total = 0;
+    for (int i = 0; i < counts.length; i++) {
+      total += counts[i];
+      System.out.println(Move.toString(rootMoves.get(i)) + ": " + counts[i]);
+    }
+    System.out.println();
+    System.out.println("Moves: " + rootMoves.size());
+    System.out.println("Nodes: " + total);
+    System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+    System.out.printf("Nodes/s: %.0f%n", total / Math.max(elapsed / 1e9, 1e-9));
+  }
+
+  /** Leaf count of the whole tree under {@code board}, the perft number. */
+  long perft(Board board, int threads) {
+    MoveList rootMoves = new MoveList();
+    board.generateLegalMoves(board.getCurrentPlayer(), rootMoves);
+    long total = 0;
+    for (long nodes : divide(board, rootMoves, threads)) {
+      total += nodes;
+    }
+    return total;
+  }
+
+  /** Leaf count under each root move, every move searched as its own task on a copy of the board. */
+  long[] divide(Board board, MoveList rootMoves, int threads) {
+    List<ForkJoinTask<Long>> tasks = new ArrayList<>(rootMoves.size());
+    for (int i = 0; i < rootMoves.size(); i++) {
+      Board copy = board.copy();
+      int move = rootMoves.get(i);
+      tasks.add(ForkJoinTask.adapt(() -> countRoot(copy, move)));
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+    } finally {
+      pool.shutdown();
+    }
+    long[] counts = new long[tasks.size()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = tasks.get(i).join();
+    }
+    return counts;
+  }
+
+  private long countRoot(Board board, int move) {
+    if (depth == 1) {
+      return 1;
+    }
+    MoveList[] lists = new MoveList[depth];
+    for (int i = 1; i < depth; i++) {
+      lists[i] = new MoveList();
+    }
+    board.makeMove(move);
+    return count(board, depth - 1, lists);
+  }
+
+  /** Leaf count of the subtree under {@code board} to {@code depth} plies. */
+  long count(Board board, int depth, MoveList[] lists) {
+    MoveList moves = lists[depth];
+    moves.clear();
+    board.generateLegalMoves(board.getCurrentPlayer(), moves);
+    if (depth == 1) {
+      return moves.size();
+    }
+
+    long key = board.getZobristKey();
+    if (table != null) {
+      long cached = table.probe(key, depth);
+      if (cached >= 0) {
+        return cached;
+      }
+    }
+
+    long nodes = 0;
+    for (int i = 0; i < moves.size(); i++) {
+      board.makeMove(moves.get(i));
+      nodes += count(board, depth - 1, lists);
+      board.unmakeMove();
+    }
+    if (table != null) {
+      table.store(key, depth, nodes);
+    }
+    return nodes;
+  }
+
+  /**
+   * Subtree counts keyed by position and depth, shared by all workers without locks.
+   * Each slot keeps the key XOR-ed with the data, so a slot torn by two threads writing
+   * at once simply fails verification and counts as a miss.
+   */
+  static final class PerftTable {
+    private final long[] slots;
+    private final int mask;
+
+    PerftTable(int megabytes) {
+      int entries = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(1, megabytes * (1L << 20) / 16)));
+      slots = new long[entries * 2];
+      mask = entries - 1;
+    }
+
+    /** Stored count for the position at this depth, or -1 on a miss. */
+    long probe(long key, int depth) {
+      int slot = ((int) key & mask) << 1;
+      long data = slots[slot + 1];
+      if ((slots[slot] ^ data) != key || (data & 0xFF) != depth) {
+        return -1;
+      }
+      return data >>> 8;
+    }
+
+    void store(long key, int depth, long nodes) {
+      int slot = ((int) key & mask) << 1;
+      long data = nodes << 8 | depth;
+      slots[slot] = key ^ data;
+      slots[slot + 1] = data;
+    }
+  }
+}
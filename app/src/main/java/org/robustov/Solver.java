@@ -0,0 +1,180 @@
+package org.robustov;
+
+import org.robustov.chess.engine.MateResult;
+import org.robustov.chess.engine.MateSolver;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Color;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Solves puzzle positions such as {@code mate.json}: finds a forced elimination of the
+ * target color in at most N moves of the side to move. Several files or directories of
+ * JSON or {@code .fcpos} positions are solved concurrently, one puzzle per thread; a
+ * single puzzle uses all threads itself.
+ */
+public class Solver {
+  public static void main(String[] args) {
+    Options options = createOptions();
+    try {
+      CommandLine cmd = new DefaultParser().parse(options, args);
+      if (cmd.hasOption("help")) {
+        new HelpFormatter().printHelp("solver [options] <file or directory>...", options);
+        return;
+      }
+      int moves = Integer.parseInt(cmd.getOptionValue("moves", "3"));
+      int threads = Integer.parseInt(cmd.getOptionValue("threads",
+          String.valueOf(Runtime.getRuntime().availableProcessors())));
+      int hashMb = Integer.parseInt(cmd.getOptionValue("hash", "64"));
+      Color target = cmd.hasOption("target") ? Color.valueOf(cmd.getOptionValue("target").toUpperCase()) : null;
+      List<Path> files = collect(cmd.getArgList().isEmpty() ? List.of("../mate.json") : cmd.getArgList());
+      if (files.isEmpty()) {
+        throw new IllegalArgumentException("No positions to solve");
+      }
+      if (threads < 1) {
+        throw new IllegalArgumentException("Threads must be positive: " + threads);
+      }
+      if (!run(files, target, moves, threads, hashMb)) {
+        System.exit(1);
+      }
+    } catch (ParseException | IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      new HelpFormatter().printHelp("solver [options] <file or directory>...", options);
+      System.exit(1);
+    } catch (UncheckedIOException e) {
+      System.err.println("Error reading positions: " + e.getCause().getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static Options createOptions() {
+    Options options = new Options();
+    options.addOption(Option.builder("n").longOpt("moves").hasArg(true).argName("moves")
+        .desc("Maximum number of moves of the side to move (defaults to 3)").build());
+    options.addOption(Option.builder("c").longOpt("target").hasArg(true).argName("color")
+        .desc("Color to eliminate (defaults to the only opponent left)").build());
+    options.addOption(Option.builder("t").longOpt("threads").hasArg(true).argName("count")
+        .desc("Worker threads (defaults to the number of processors)").build());
+    options.addOption(Option.builder("H").longOpt("hash").hasArg(true).argName("mb")
+        .desc("Proof table size in megabytes, shared by the threads (defaults to 64)").build());
+    options.addOption(Option.builder("h").longOpt("help").desc("Print this help").build());
+    return options;
+  }
+
+  private static List<Path> collect(List<String> arguments) {
+    List<Path> files = new ArrayList<>();
+    for (String argument : arguments) {
+      Path path = Path.of(argument);
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> entries = Files.list(path)) {
+          entries.filter(p -> p.toString().endsWith(".json") || p.toString().endsWith(Board.BINARY_EXTENSION))
+              .sorted().forEach(files::add);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      } else {
+        files.add(path);
+      }
+    }
+    return files;
+  }
+
+  private static boolean run(List<Path> files, Color target, int moves, int threads, int hashMb) {
+    long start = System.nanoTime();
+    int solved = 0;
+    int failed = 0;
+    long nodes = 0;
+    if (files.size() == 1) {
+      try {
+        MateResult result = solve(files.get(0), target, moves, new MateSolver(threads, hashMb));
+        System.out.println(files.get(0) + ": " + result);
+        solved += result.isSolved() ? 1 : 0;
+        nodes += result.getNodes();
+      } catch (RuntimeException e) {
+        System.out.println(files.get(0) + ": error " + message(e));
+        failed++;
+      }
+    } else {
+      int perThreadMb = Math.max(1, hashMb / threads);
+      ThreadLocal<MateSolver> solvers = ThreadLocal.withInitial(() -> new MateSolver(1, perThreadMb));
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<MateResult>> results = new ArrayList<>();
+        for (Path file : files) {
+          results.add(pool.submit(() -> solve(file, target, moves, solvers.get())));
+        }
+        for (int i = 0; i < files.size(); i++) {
+          // A broken puzzle is reported and counted; the rest of the batch still runs.
+          try {
+            MateResult result = results.get(i).get();
+            System.out.println(files.get(i) + ": " + result);
+            solved += result.isSolved() ? 1 : 0;
+            nodes += result.getNodes();
+          } catch (ExecutionException e) {
+            System.out.println(files.get(i) + ": error " + message(e.getCause()));
+            failed++;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.println();
+    System.out.println("Solved: " + solved + " of " + files.size());
+    if (failed > 0) {
+      System.out.println("Failed: " + failed);
+    }
+    System.out.println("Nodes: " + nodes);
+    System.out.printf("Time: %.3f s%n", seconds);
+    System.out.printf("Nodes/s: %.0f%n", nodes / Math.max(seconds, 1e-9));
+    return failed == 0;
+  }
+
+  private static String message(Throwable e) {
+    return e instanceof UncheckedIOException ? "reading position: " + e.getCause().getMessage() : e.getMessage();
+  }
+
+  private static MateResult solve(Path file, Color target, int moves, MateSolver solver) {
+    Board board = new Board();
+    try {
+      board.loadFile(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return solver.solve(board, target != null ? target : onlyOpponent(board), moves);
+  }
+
+  private static Color onlyOpponent(Board board) {
+    Color opponent = null;
+    for (Color color : Color.values()) {
+      if (color != board.getCurrentPlayer() && board.isPlayerActive(color)) {
+        if (opponent != null) {
+          throw new IllegalArgumentException("several opponents, choose one with --target");
+        }
+        opponent = color;
+      }
+    }
+    if (opponent == null) {
+      throw new IllegalArgumentException("no opponent left");
+    }
+    return opponent;
+  }
+}
@@ -0,0 +1,381 @@
+package org.robustov;
+
+import org.robustov.chess.engine.MonteCarloSearch;
+import org.robustov.chess.engine.ParanoidSearch;
+import org.robustov.chess.engine.SearchLimits;
+import org.robustov.chess.engine.Sprt;
+import org.robustov.chess.engine.TranspositionTable;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Plays engine-versus-engine games without a window to compare two engine settings.
+ * Each engine holds two of the four seats; the games cycle through all six ways to
+ * split the colors between them, and every opening (a few random plies from the start
+ * position) is played once in each split. Games run concurrently, one per worker thread.
+ *
+ * <p>A game ends when one player is left or after the ply limit, when the players still
+ * in are ranked by their score. Places earn 3, 2, 1 and 0 points; the first engine's
+ * share of the points decides the game for the SPRT, which can stop the match early.
+ */
+public class Tournament {
+  private static final int[] POINTS = { 3, 2, 1, 0 };
+
+  private final Board start;
+  private final EngineSpec first;
+  private final EngineSpec second;
+  private final int maxPlies;
+  private final int randomPlies;
+  private final int hashMb;
+  private final List<Color[]> seatings = new ArrayList<>();
+  private volatile boolean cancelled;
+
+  Tournament(Board start, EngineSpec first, EngineSpec second, int maxPlies, int randomPlies, int hashMb) {
+    this.start = start;
+    this.first = first;
+    this.second = second;
+    this.maxPlies = maxPlies;
+    this.randomPlies = randomPlies;
+    this.hashMb = hashMb;
+    Color[] colors = Color.values();
+    for (int i = 0; i < colors.length; i++) {
+      for (int j = i + 1; j < colors.length; j++) {
+        seatings.add(new Color[] { colors[i], colors[j] });
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    Options options = createOptions();
+    try {
+      CommandLine cmd = new DefaultParser().parse(options, args);
+      if (cmd.hasOption("help")) {
+        new HelpFormatter().printHelp("tournament", options);
+        return;
+      }
+      Path file = Path.of(cmd.getOptionValue("load", "../starting_position.json"));
+      EngineSpec first = EngineSpec.parse(cmd.getOptionValue("first", "paranoid:2000"));
+      EngineSpec second = EngineSpec.parse(cmd.getOptionValue("second", "paranoid:1000"));
+      int games = Integer.parseInt(cmd.getOptionValue("games", "600"));
+      int threads = Integer.parseInt(cmd.getOptionValue("concurrency",
+          String.valueOf(Runtime.getRuntime().availableProcessors())));
+      int maxPlies = Integer.parseInt(cmd.getOptionValue("max-plies", "400"));
+      int randomPlies = Integer.parseInt(cmd.getOptionValue("random-plies", "4"));
+      int hashMb = Integer.parseInt(cmd.getOptionValue("hash", "4"));
+      Sprt sprt = new Sprt(Double.parseDouble(cmd.getOptionValue("elo0", "0")),
+          Double.parseDouble(cmd.getOptionValue("elo1", "20")),
+          Double.parseDouble(cmd.getOptionValue("alpha", "0.05")),
+          Double.parseDouble(cmd.getOptionValue("beta", "0.05")));
+      if (games < 1 || threads < 1 || maxPlies < 1 || randomPlies < 0) {
+        throw new IllegalArgumentException("games, concurrency and max-plies must be positive");
+      }
+
+      Board board = new Board();
+      board.loadFile(file);
+      new Tournament(board, first, second, maxPlies, randomPlies, hashMb).run(games, threads, sprt);
+    } catch (ParseException | IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      new HelpFormatter().printHelp("tournament", options);
+      System.exit(1);
+    } catch (IOException e) {
+      System.err.println("Error reading position: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  private static Options createOptions() {
+    Options options = new Options();
+    options.addOption(Option.builder("l").longOpt("load").hasArg(true).argName("file")
+        .desc("Start position (defaults to ../starting_position.json)").build());
+    options.addOption(Option.builder("a").longOpt("first").hasArg(true).argName("engine")
+        .desc("Engine under test: paranoid:<nodes> or mcts:<playouts> (defaults to paranoid:2000)").build());
+    options.addOption(Option.builder("b").longOpt("second").hasArg(true).argName("engine")
+        .desc("Reference engine (defaults to paranoid:1000)").build());
+    options.addOption(Option.builder("g").longOpt("games").hasArg(true).argName("count")
+        .desc("Maximum number of games (defaults to 600)").build());
+    options.addOption(Option.builder("c").longOpt("concurrency").hasArg(true).argName("threads")
+        .desc("Games played at once (defaults to the number of processors)").build());
+    options.addOption(Option.builder("p").longOpt("max-plies").hasArg(true).argName("plies")
+        .desc("Plies before a game is adjudicated by score (defaults to 400)").build());
+    options.addOption(Option.builder("r").longOpt("random-plies").hasArg(true).argName("plies")
+        .desc("Random plies that open each game (defaults to 4)").build());
+    options.addOption(Option.builder("H").longOpt("hash").hasArg(true).argName("mb")
+        .desc("Hash table per player in megabytes (defaults to 4)").build());
+    options.addOption(Option.builder().longOpt("elo0").hasArg(true).argName("elo")
+        .desc("SPRT null hypothesis (defaults to 0)").build());
+    options.addOption(Option.builder().longOpt("elo1").hasArg(true).argName("elo")
+        .desc("SPRT alternative hypothesis (defaults to 20)").build());
+    options.addOption(Option.builder().longOpt("alpha").hasArg(true).argName("rate")
+        .desc("SPRT false positive rate (defaults to 0.05)").build());
+    options.addOption(Option.builder().longOpt("beta").hasArg(true).argName("rate")
+        .desc("SPRT false negative rate (defaults to 0.05)").build());
+    options.addOption(Option.builder("h").longOpt("help").desc("Print this help").build());
+    return options;
+  }
+
+  void run(int games, int threads, Sprt sprt) {
+    // placements[engine][color][place]
+    long[][][] placements = new long[2][Color.values().length][POINTS.length];
+    long plies = 0;
+    int played = 0;
+    int failed = 0;
+    long startTime = System.nanoTime();
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CompletionService<GameResult> results = new ExecutorCompletionService<>(pool);
+    try {
+      for (int game = 0; game < games; game++) {
+        int index = game;
+        results.submit(() -> {
+          try {
+            return play(index);
+          } catch (RuntimeException e) {
+            throw new IllegalStateException("game " + (index + 1) + ": " + e, e);
+          }
+        });
+      }
+      while (played + failed < games) {
+        GameResult result;
+        try {
+          result = results.take().get();
+        } catch (ExecutionException e) {
+          // One broken game must not throw away the results of all the others.
+          System.err.println("Error: " + e.getCause().getMessage() + ", skipped");
+          failed++;
+          continue;
+        }
+        played++;
+        plies += result.plies;
+        for (Color color : Color.values()) {
+          int engine = result.isFirst(color) ? 0 : 1;
+          placements[engine][color.ordinal()][result.places[color.ordinal()] - 1]++;
+        }
+        sprt.add(result.firstScore());
+        if (played % 10 == 0 || played == games || sprt.getDecision() != Sprt.Decision.CONTINUE) {
+          double minutes = (System.nanoTime() - startTime) / 60e9;
+          System.out.printf("Games %d, score %.3f, Elo %+.1f, %s, %.1f games/min%n",
+              played, sprt.getMean(), sprt.getElo(), sprt, played / Math.max(minutes, 1e-9));
+        }
+        if (sprt.getDecision() != Sprt.Decision.CONTINUE) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      cancelled = true;
+      pool.shutdownNow();
+    }
+
+    double minutes = (System.nanoTime() - startTime) / 60e9;
+    System.out.println();
+    printPlacements("First", first, placements[0]);
+    printPlacements("Second", second, placements[1]);
+    System.out.println();
+    System.out.println("Games: " + played);
+    if (failed > 0) {
+      System.out.println("Failed games: " + failed);
+    }
+    System.out.printf("Average length: %.1f plies%n", played == 0 ? 0.0 : (double) plies / played);
+    System.out.printf("Games/min: %.1f%n", played / Math.max(minutes, 1e-9));
+    System.out.printf("Score: %.3f (Elo %+.1f)%n", sprt.getMean(), sprt.getElo());
+    System.out.println("SPRT: " + sprt);
+  }
+
+  private static void printPlacements(String label, EngineSpec engine, long[][] byColor) {
+    System.out.println(label + " engine " + engine + " places 1st/2nd/3rd/4th:");
+    long[] total = new long[POINTS.length];
+    for (Color color : Color.values()) {
+      long[] places = byColor[color.ordinal()];
+      for (int i = 0; i < places.length; i++) {
+        total[i] += places[i];
+      }
+      System.out.printf("  %-6s %s avg %.2f%n", color, Arrays.toString(places), averagePlace(places));
+    }
+    System.out.printf("  %-6s %s avg %.2f%n", "all", Arrays.toString(total), averagePlace(total));
+  }
+
+  private static double averagePlace(long[] places) {
+    long games = 0;
+    long sum = 0;
+    for (int i = 0; i < places.length; i++) {
+      games += places[i];
+      sum += places[i] * (i + 1);
+    }
+    return games == 0 ? 0 : (double) sum / games;
+  }
+
+  /** Plays game {@code index}, or returns null if the tournament has already been decided. */
+  private GameResult play(int index) {
+    if (cancelled) {
+      return null;
+    }
+    Color[] firstSeats = seatings.get(index % seatings.size());
+    GameResult result = new GameResult(firstSeats);
+    Player[] players = new Player[Color.values().length];
+    for (Color color : Color.values()) {
+      players[color.ordinal()] = (result.isFirst(color) ? first : second).create(hashMb);
+    }
+
+    Board board = start.copy();
+    // Every opening is played in each seating, so it favours neither engine.
+    SplittableRandom random = new SplittableRandom(index / seatings.size());
+    MoveList moves = new MoveList();
+    int nextPlace = activeCount(board);
+    int[] scores = new int[Color.values().length];
+    int ply = 0;
+    while (ply < maxPlies && activeCount(board) > 1 && !cancelled) {
+      Color side = board.getCurrentPlayer();
+      int move;
+      if (ply < randomPlies) {
+        moves.clear();
+        board.generateLegalMoves(side, moves);
+        move = moves.isEmpty() ? Move.NONE : moves.get(random.nextInt(moves.size()));
+      } else {
+        move = players[side.ordinal()].move(board);
+      }
+      if (move == Move.NONE) {
+        break;
+      }
+      for (Color color : Color.values()) {
+        scores[color.ordinal()] = board.getScore(color);
+      }
+      board.makeMove(move);
+      ply++;
+      nextPlace = placeEliminated(board, result, scores, nextPlace);
+    }
+    if (cancelled) {
+      return null;
+    }
+    for (Color color : Color.values()) {
+      scores[color.ordinal()] = board.getScore(color);
+    }
+    rankRemaining(result, scores);
+    result.plies = ply;
+    return result;
+  }
+
+  /** Gives the players knocked out by the last move the worst free places, better score first. */
+  private static int placeEliminated(Board board, GameResult result, int[] scores, int nextPlace) {
+    int out = 0;
+    for (Color color : Color.values()) {
+      if (result.places[color.ordinal()] == 0 && !board.isPlayerActive(color)) {
+        out++;
+      }
+    }
+    if (out == 0) {
+      return nextPlace;
+    }
+    int place = nextPlace - out + 1;
+    for (Color color : byScore(scores)) {
+      if (result.places[color.ordinal()] == 0 && !board.isPlayerActive(color)) {
+        result.places[color.ordinal()] = place++;
+      }
+    }
+    return nextPlace - out;
+  }
+
+  /** The players still in at the end take the best places in order of score. */
+  private static void rankRemaining(GameResult result, int[] scores) {
+    int place = 1;
+    for (Color color : byScore(scores)) {
+      if (result.places[color.ordinal()] == 0) {
+        result.places[color.ordinal()] = place++;
+      }
+    }
+  }
+
+  private static List<Color> byScore(int[] scores) {
+    List<Color> colors = new ArrayList<>(List.of(Color.values()));
+    colors.sort((a, b) -> Integer.compare(scores[b.ordinal()], scores[a.ordinal()]));
+    return colors;
+  }
+
+  private static int activeCount(Board board) {
+    int active = 0;
+    for (Color color : Color.values()) {
+      if (board.isPlayerActive(color)) {
+        active++;
+      }
+    }
+    return active;
+  }
+
+  /** Places of one game, 1 to 4 per color, and which colors the first engine played. */
+  private static final class GameResult {
+    final Color[] firstSeats;
+    final int[] places = new int[Color.values().length];
+    int plies;
+
+    GameResult(Color[] firstSeats) {
+      this.firstSeats = firstSeats;
+    }
+
+    boolean isFirst(Color color) {
+      return firstSeats[0] == color || firstSeats[1] == color;
+    }
+
+    /** Share of the points above the minimum of 1 and below the maximum of 5, in 0..1. */
+    double firstScore() {
+      int points = 0;
+      for (Color color : firstSeats) {
+        points += POINTS[places[color.ordinal()] - 1];
+      }
+      return (points - 1) / 4.0;
+    }
+  }
+
+  private interface Player {
+    /** Move for the side to move, or {@link Move#NONE} if it has none. */
+    int move(Board board);
+  }
+
+  /** An engine and its budget per move, written {@code paranoid:<nodes>} or {@code mcts:<playouts>}. */
+  record EngineSpec(String kind, long budget) {
+    static EngineSpec parse(String text) {
+      String[] parts = text.split(":");
+      if (parts.length != 2 || !(parts[0].equals("paranoid") || parts[0].equals("mcts"))) {
+        throw new IllegalArgumentException("Engine must be paranoid:<nodes> or mcts:<playouts>: " + text);
+      }
+      long budget = Long.parseLong(parts[1]);
+      if (budget < 1) {
+        throw new IllegalArgumentException("Engine budget must be positive: " + text);
+      }
+      return new EngineSpec(parts[0], budget);
+    }
+
+    Player create(int hashMb) {
+      SearchLimits limits = SearchLimits.nodes(budget);
+      if (kind.equals("mcts")) {
+        MonteCarloSearch search = new MonteCarloSearch(1);
+        return board -> search.search(board, limits).getBestMove();
+      }
+      ParanoidSearch search = new ParanoidSearch(new TranspositionTable(hashMb));
+      return board -> search.search(board, limits).getBestMove();
+    }
+
+    @Override
+    public String toString() {
+      return kind + ":" + budget;
+    }
+  }
+}
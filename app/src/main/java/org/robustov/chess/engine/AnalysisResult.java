@@ -0,0 +1,77 @@
+package org.robustov.chess.engine;
+
+/**
+ * Outcome of a {@link ParallelSearch}: the deepest completed line and the work done by
+ * each thread, so speedup and per-core efficiency can be compared between thread counts.
+ */
+public final class AnalysisResult {
+  private final SearchResult best;
+  private final long[] threadNodes;
+  private final long elapsedNanos;
+  private final int hashfull;
+
+  AnalysisResult(SearchResult best, long[] threadNodes, long elapsedNanos, int hashfull) {
+    this.best = best;
+    this.threadNodes = threadNodes;
+    this.elapsedNanos = elapsedNanos;
+    this.hashfull = hashfull;
+  }
+
+  /** The line of the thread that completed the deepest iteration, with that thread's own node count. */
+  public SearchResult getBest() {
+    return best;
+  }
+
+  public int getBestMove() {
+    return best.getBestMove();
+  }
+
+  public int getScore() {
+    return best.getScore();
+  }
+
+  public int getDepth() {
+    return best.getDepth();
+  }
+
+  public int[] getPrincipalVariation() {
+    return best.getPrincipalVariation();
+  }
+
+  public int getThreads() {
+    return threadNodes.length;
+  }
+
+  public long getThreadNodes(int thread) {
+    return threadNodes[thread];
+  }
+
+  /** Nodes searched by all threads together. */
+  public long getNodes() {
+    long nodes = 0;
+    for (long count : threadNodes) {
+      nodes += count;
+    }
+    return nodes;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public long getNodesPerSecond() {
+    return elapsedNanos == 0 ? 0 : getNodes() * 1_000_000_000L / elapsedNanos;
+  }
+
+  /** Permille of the shared table written during this search. */
+  public int getHashfull() {
+    return hashfull;
+  }
+
+  @Override
+  public String toString() {
+    return "threads " + threadNodes.length + " depth " + best.getDepth() + " score " + best.getScore()
+        + " nodes " + getNodes() + " nps " + getNodesPerSecond() + " hashfull " + hashfull
+        + " pv " + best.principalVariationString();
+  }
+}
@@ -0,0 +1,325 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+import org.robustov.chess.model.Tablebase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Text protocol modelled on UCI for driving the engine from scripts and tournament
+ * managers, one command per line on the input and one reply per line on the output:
+ *
+ * <pre>
+ * uci                                  id lines, options, then "uciok"
+ * isready                              "readyok"
+ * setoption name Threads|Hash value N  search threads, hash table size in MB
+ * setoption name Book value PATH|none  opening book to play from
+ * setoption name Tablebase value DIR|none  endgame tables for the search
+ * ucinewgame                           forget the hash table
+ * position startpos|file PATH|fen NOTATION [moves M...]
+ * go [depth N] [movetime MS] [nodes N] [infinite] [ytime MS] [yinc MS] ...
+ * stop                                 end the search, which answers with bestmove
+ * d                                    the current position in notation
+ * quit
+ * </pre>
+ *
+ * <p>Positions come from a JSON or {@code .fcpos} save or the one-line notation of
+ * {@link Board#toNotation()}; moves are written as {@code c3-b1} or {@code d5xe4}, and
+ * {@code c3b1} is accepted too.
+ * {@code ytime}, {@code btime}, {@code rtime} and {@code gtime} (with {@code yinc} and so
+ * on) give each color's clock; the side to move spends a share of its own.
+ *
+ * <p>While the position is in the opening book, {@code go} answers with a book move at
+ * once. Otherwise the search runs on a background thread, printing an {@code info} line
+ * per completed depth and a {@code bestmove} line at the end, so {@code stop} and
+ * {@code isready} are answered while it runs. Mate scores are given as {@code score mate P}, P being plies,
+ * negative when the side to move is the one eliminated.
+ */
+public class EngineProtocol {
+  private static final int MAX_THREADS = 256;
+  private static final int MAX_HASH = 65536;
+
+  private final BufferedReader in;
+  private final PrintStream out;
+  private final Path startPosition;
+  private Board board = new Board();
+  private int threads;
+  private int hashMb;
+  private ParallelSearch search;
+  private Thread searching;
+  private OpeningBook book;
+  private Tablebase tablebase;
+  private final SplittableRandom bookRandom = new SplittableRandom();
+
+  public EngineProtocol(BufferedReader in, PrintStream out, Path startPosition, int threads, int hashMb) {
+    if (threads < 1 || threads > MAX_THREADS || hashMb < 1 || hashMb > MAX_HASH) {
+      throw new IllegalArgumentException("Threads must be 1-" + MAX_THREADS + " and hash 1-" + MAX_HASH + " MB");
+    }
+    this.in = in;
+    this.out = out;
+    this.startPosition = startPosition;
+    this.threads = threads;
+    this.hashMb = hashMb;
+    this.search = newSearch();
+  }
+
+  /** Position searched until the first {@code position} command, e.g. one given with --load. */
+  public void setPosition(Path file) throws IOException {
+    Board next = new Board();
+    next.loadFile(file);
+    board = next;
+  }
+
+  /** Opening book whose moves are played at once while the position is in it. */
+  public void setBook(OpeningBook book) {
+    this.book = book;
+  }
+
+  /** Reads commands until {@code quit} or the end of the input. */
+  public void run() throws IOException {
+    String line;
+    while ((line = in.readLine()) != null) {
+      String[] words = line.trim().split("\\s+");
+      if (words[0].isEmpty()) {
+        continue;
+      }
+      try {
+        if (!execute(words)) {
+          break;
+        }
+      } catch (IllegalArgumentException e) {
+        send("info string error: " + e.getMessage() + (e.getCause() == null ? "" : ": " + e.getCause()));
+      } catch (IOException e) {
+        send("info string error: cannot read " + e.getMessage());
+      }
+    }
+    stopSearch();
+  }
+
+  private boolean execute(String[] words) throws IOException {
+    switch (words[0]) {
+      case "uci" -> {
+        send("id name FortressChess");
+        send("id author robustov");
+        send("option name Threads type spin default " + threads + " min 1 max " + MAX_THREADS);
+        send("option name Hash type spin default " + hashMb + " min 1 max " + MAX_HASH);
+        send("option name Book type string default none");
+        send("option name Tablebase type string default none");
+        send("uciok");
+      }
+      case "isready" -> send("readyok");
+      case "setoption" -> setOption(words);
+      case "ucinewgame" -> {
+        stopSearch();
+        search = newSearch();
+      }
+      case "position" -> position(words);
+      case "go" -> go(words);
+      case "stop" -> stopSearch();
+      case "d" -> send("info string " + board.toNotation());
+      case "quit" -> {
+        return false;
+      }
+      default -> send("info string unknown command: " + words[0]);
+    }
+    return true;
+  }
+
+  private void setOption(String[] words) throws IOException {
+    int name = indexOf(words, "name");
+    int value = indexOf(words, "value");
+    if (name < 0 || value != name + 2 || value + 1 >= words.length) {
+      throw new IllegalArgumentException("expected setoption name <name> value <value>");
+    }
+    String text = String.join(" ", Arrays.copyOfRange(words, value + 1, words.length));
+    stopSearch();
+    switch (words[name + 1].toLowerCase()) {
+      case "threads" -> threads = requireRange(Integer.parseInt(text), MAX_THREADS, "Threads");
+      case "hash" -> hashMb = requireRange(Integer.parseInt(text), MAX_HASH, "Hash");
+      case "book" -> {
+        if (book != null) {
+          book.close();
+          book = null;
+        }
+        if (!text.equals("none")) {
+          book = OpeningBook.open(Path.of(text));
+        }
+        return;
+      }
+      case "tablebase" -> {
+        if (tablebase != null) {
+          tablebase.close();
+          tablebase = null;
+        }
+        if (!text.equals("none")) {
+          tablebase = Tablebase.open(Path.of(text));
+        }
+      }
+      default -> throw new IllegalArgumentException("unknown option: " + words[name + 1]);
+    }
+    search = newSearch();
+  }
+
+  private ParallelSearch newSearch() {
+    ParallelSearch search = new ParallelSearch(threads, hashMb);
+    search.setTablebase(tablebase);
+    return search;
+  }
+
+  private void position(String[] words) throws IOException {
+    if (words.length < 2) {
+      throw new IllegalArgumentException("expected position startpos|file <path>|fen <notation>");
+    }
+    stopSearch();
+    int moves = indexOf(words, "moves");
+    int end = moves < 0 ? words.length : moves;
+    // Built aside, so that a bad file or move leaves the previous position in place.
+    Board next = new Board();
+    switch (words[1]) {
+      case "startpos" -> next.loadFile(startPosition);
+      case "file" -> next.loadFile(Path.of(String.join(" ", Arrays.copyOfRange(words, 2, end))));
+      case "fen" -> next.loadNotation(String.join(" ", Arrays.copyOfRange(words, 2, end)));
+      default -> throw new IllegalArgumentException("unknown position type: " + words[1]);
+    }
+    if (moves >= 0) {
+      for (int i = moves + 1; i < words.length; i++) {
+        next.makeMove(parseMove(next, words[i]));
+      }
+    }
+    board = next;
+  }
+
+  private static int parseMove(Board board, String text) {
+    MoveList legal = new MoveList();
+    board.generateLegalMoves(board.getCurrentPlayer(), legal);
+    int move;
+    try {
+      move = Move.parse(text, legal);
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      move = Move.NONE;
+    }
+    if (move == Move.NONE) {
+      throw new IllegalArgumentException("illegal move: " + text);
+    }
+    return move;
+  }
+
+  private void go(String[] words) {
+    stopSearch();
+    int bookMove = book == null ? Move.NONE : book.choose(board, bookRandom);
+    if (bookMove != Move.NONE) {
+      send("info string book move " + Move.toString(bookMove));
+      send("bestmove " + Move.toString(bookMove));
+      return;
+    }
+    int depth = SearchLimits.MAX_DEPTH;
+    long movetime = 0;
+    long nodes = 0;
+    long clock = 0;
+    long increment = 0;
+    String prefix = String.valueOf(Character.toLowerCase(board.getCurrentPlayer().name().charAt(0)));
+    for (int i = 1; i + 1 < words.length; i++) {
+      String value = words[i + 1];
+      switch (words[i]) {
+        case "depth" -> depth = Integer.parseInt(value);
+        case "movetime" -> movetime = Long.parseLong(value);
+        case "nodes" -> nodes = Long.parseLong(value);
+        default -> {
+          if (words[i].equals(prefix + "time")) {
+            clock = Long.parseLong(value);
+          } else if (words[i].equals(prefix + "inc")) {
+            increment = Long.parseLong(value);
+          }
+        }
+      }
+    }
+    if (movetime == 0 && clock > 0) {
+      movetime = Math.max(1, Math.min(clock / 30 + increment / 2, clock / 2));
+    }
+    SearchLimits limits = new SearchLimits(depth, movetime, nodes);
+
+    Board copy = board.copy();
+    ParallelSearch current = search;
+    current.setProgressListener(this::sendInfo);
+    searching = new Thread(() -> {
+      int bestMove;
+      try {
+        AnalysisResult result = current.search(copy, limits);
+        send("info depth " + result.getDepth() + " " + score(result.getScore()) + " nodes " + result.getNodes()
+            + " nps " + result.getNodesPerSecond() + " time " + result.getElapsedNanos() / 1_000_000
+            + " hashfull " + result.getHashfull());
+        bestMove = result.getBestMove();
+      } catch (RuntimeException e) {
+        // A GUI waits for bestmove whatever happens, so answer with any legal move.
+        send("info string error: " + e.getMessage() + (e.getCause() == null ? "" : ": " + e.getCause()));
+        MoveList legal = new MoveList();
+        copy.generateLegalMoves(copy.getCurrentPlayer(), legal);
+        bestMove = legal.isEmpty() ? Move.NONE : legal.get(0);
+      }
+      send("bestmove " + (bestMove == Move.NONE ? "none" : Move.toString(bestMove)));
+    }, "search");
+    searching.setDaemon(true);
+    searching.start();
+  }
+
+  private void sendInfo(SearchResult result) {
+    send("info depth " + result.getDepth() + " " + score(result.getScore()) + " nodes " + result.getNodes()
+        + " nps " + result.getNodesPerSecond() + " time " + result.getElapsedNanos() / 1_000_000
+        + " pv " + result.principalVariationString());
+  }
+
+  private static String score(int score) {
+    if (!ParanoidSearch.isMateScore(score)) {
+      return "score cp " + score;
+    }
+    int plies = ParanoidSearch.MATE - Math.abs(score);
+    return "score mate " + (score > 0 ? plies : -plies);
+  }
+
+  /** Stops a running search and waits until it has printed its bestmove. */
+  private void stopSearch() {
+    if (searching == null) {
+      return;
+    }
+    try {
+      // Repeat the request: a search thread that has only just started may not have seen it.
+      while (searching.isAlive()) {
+        search.stop();
+        searching.join(50);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    searching = null;
+  }
+
+  private void send(String line) {
+    synchronized (out) {
+      out.println(line);
+      out.flush();
+    }
+  }
+
+  private static int indexOf(String[] words, String word) {
+    for (int i = 0; i < words.length; i++) {
+      if (words[i].equals(word)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int requireRange(int value, int max, String name) {
+    if (value < 1 || value > max) {
+      throw new IllegalArgumentException(name + " must be between 1 and " + max + ": " + value);
+    }
+    return value;
+  }
+}
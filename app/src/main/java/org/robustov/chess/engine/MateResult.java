@@ -0,0 +1,56 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Move;
+
+/** Answer of {@link MateSolver}: the first move of a forced win and how many moves it takes. */
+public final class MateResult {
+  private final Color target;
+  private final int move;
+  private final int moves;
+  private final long nodes;
+  private final long elapsedNanos;
+
+  MateResult(Color target, int move, int moves, long nodes, long elapsedNanos) {
+    this.target = target;
+    this.move = move;
+    this.moves = moves;
+    this.nodes = nodes;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public boolean isSolved() {
+    return move != Move.NONE;
+  }
+
+  public Color getTarget() {
+    return target;
+  }
+
+  /** First move of the solution, or {@link Move#NONE} if no forced win was found. */
+  public int getMove() {
+    return move;
+  }
+
+  /** Number of moves of the solving side needed to eliminate the target, 0 if unsolved. */
+  public int getMoves() {
+    return moves;
+  }
+
+  public long getNodes() {
+    return nodes;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    String time = String.format("%.3f s", elapsedNanos / 1e9);
+    if (!isSolved()) {
+      return "no forced elimination of " + target + " (" + nodes + " nodes, " + time + ")";
+    }
+    return target + " eliminated in " + moves + ": " + Move.toString(move) + " (" + nodes + " nodes, " + time + ")";
+  }
+}
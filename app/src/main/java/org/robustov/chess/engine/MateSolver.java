@@ -0,0 +1,212 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Depth-first proof search for a forced elimination. The side to move (the attacker)
+ * must knock {@code target} out within N of its own moves whatever every other player
+ * replies; all of them defend, so a line only counts if it works against each of their
+ * moves. Rounds are deepened one attacker move at a time, so the shortest win is found.
+ *
+ * <p>Proved and refuted positions are kept in a {@link ProofTable} keyed by the position
+ * hash. With more than one thread the attacker's first moves are split between workers,
+ * each on its own board copy, sharing the table.
+ */
+public class MateSolver {
+  private final int threads;
+  private final ProofTable table;
+  private final AtomicLong nodes = new AtomicLong();
+  private volatile boolean stopped;
+
+  public MateSolver(int threads, int hashMegabytes) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("At least one thread is required: " + threads);
+    }
+    this.threads = threads;
+    this.table = new ProofTable(hashMegabytes);
+  }
+
+  /** Looks for a forced elimination of {@code target} in at most {@code maxMoves} moves of the side to move. */
+  public MateResult solve(Board board, Color target, int maxMoves) {
+    Color attacker = board.getCurrentPlayer();
+    if (target == attacker) {
+      throw new IllegalArgumentException("The side to move cannot be its own target: " + target);
+    }
+    if (maxMoves < 1 || maxMoves > ProofTable.MAX_MOVES) {
+      throw new IllegalArgumentException("Moves must be between 1 and " + ProofTable.MAX_MOVES + ": " + maxMoves);
+    }
+    long start = System.nanoTime();
+    nodes.set(0);
+    stopped = false;
+    table.clear();
+
+    MoveList rootMoves = new MoveList();
+    board.generateLegalMoves(attacker, rootMoves);
+    for (int moves = 1; moves <= maxMoves && !stopped; moves++) {
+      int solution = solveRoot(board, attacker, target, rootMoves, moves);
+      if (solution != Move.NONE) {
+        return new MateResult(target, solution, moves, nodes.get(), System.nanoTime() - start);
+      }
+    }
+    return new MateResult(target, Move.NONE, 0, nodes.get(), System.nanoTime() - start);
+  }
+
+  /** Asks a running solve, possibly on another thread, to give up as soon as possible. */
+  public void stop() {
+    stopped = true;
+  }
+
+  private int solveRoot(Board board, Color attacker, Color target, MoveList rootMoves, int moves) {
+    if (threads == 1) {
+      Prover prover = new Prover(board, attacker, target);
+      for (int i = 0; i < rootMoves.size(); i++) {
+        if (prover.provesAfter(rootMoves.get(i), moves)) {
+          return rootMoves.get(i);
+        }
+      }
+      return Move.NONE;
+    }
+
+    AtomicInteger solution = new AtomicInteger(Move.NONE);
+    AtomicInteger next = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        Board copy = board.copy();
+        workers.add(pool.submit(() -> {
+          Prover prover = new Prover(copy, attacker, target);
+          for (int i = next.getAndIncrement(); i < rootMoves.size() && solution.get() == Move.NONE;
+              i = next.getAndIncrement()) {
+            if (prover.provesAfter(rootMoves.get(i), moves)) {
+              solution.compareAndSet(Move.NONE, rootMoves.get(i));
+            }
+          }
+        }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stopped = true;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Solver thread failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    return solution.get();
+  }
+
+  /** Recursive AND/OR search over one board; one instance per thread. */
+  private final class Prover {
+    private final Board board;
+    private final Color attacker;
+    private final Color target;
+    private final List<MoveList> lists = new ArrayList<>();
+    private int localNodes;
+
+    Prover(Board board, Color attacker, Color target) {
+      this.board = board;
+      this.attacker = attacker;
+      this.target = target;
+    }
+
+    boolean provesAfter(int move, int moves) {
+      countNode();
+      board.makeMove(move);
+      boolean proved = afterAttackerMove(moves - 1, 0);
+      board.unmakeMove();
+      flushNodes();
+      return proved;
+    }
+
+    /** Outcome after the attacker moved, with {@code moves} attacker moves still to come. */
+    private boolean afterAttackerMove(int moves, int ply) {
+      if (!board.isPlayerActive(target)) {
+        return true;
+      }
+      if (moves == 0 || !board.isPlayerActive(attacker)) {
+        return false;
+      }
+      return board.getCurrentPlayer() == attacker ? attackerWins(moves, ply) : defendersLose(moves, ply);
+    }
+
+    /** OR node: some attacker move wins in {@code moves}. */
+    private boolean attackerWins(int moves, int ply) {
+      long key = board.getZobristKey();
+      int known = table.probe(key, moves);
+      if (known != ProofTable.UNKNOWN) {
+        return known == ProofTable.PROVED;
+      }
+      MoveList list = list(ply);
+      board.generateLegalMoves(attacker, list);
+      boolean proved = false;
+      for (int i = 0; i < list.size() && !proved && !stopped; i++) {
+        countNode();
+        board.makeMove(list.get(i));
+        proved = afterAttackerMove(moves - 1, ply + 1);
+        board.unmakeMove();
+      }
+      if (!stopped) {
+        table.store(key, moves, proved);
+      }
+      return proved;
+    }
+
+    /** AND node: every reply of the defender to move still loses in {@code moves}. */
+    private boolean defendersLose(int moves, int ply) {
+      long key = board.getZobristKey();
+      int known = table.probe(key, moves);
+      if (known != ProofTable.UNKNOWN) {
+        return known == ProofTable.PROVED;
+      }
+      MoveList list = list(ply);
+      board.generateLegalMoves(board.getCurrentPlayer(), list);
+      // A defender without a move stalls the game; that is not a win for the attacker.
+      boolean proved = !list.isEmpty();
+      for (int i = 0; i < list.size() && proved && !stopped; i++) {
+        countNode();
+        board.makeMove(list.get(i));
+        proved = afterAttackerMove(moves, ply + 1);
+        board.unmakeMove();
+      }
+      if (!stopped) {
+        table.store(key, moves, proved);
+      }
+      return proved && !stopped;
+    }
+
+    private MoveList list(int ply) {
+      while (lists.size() <= ply) {
+        lists.add(new MoveList());
+      }
+      MoveList list = lists.get(ply);
+      list.clear();
+      return list;
+    }
+
+    private void countNode() {
+      if (++localNodes == 4096) {
+        flushNodes();
+      }
+    }
+
+    private void flushNodes() {
+      nodes.addAndGet(localNodes);
+      localNodes = 0;
+    }
+  }
+}
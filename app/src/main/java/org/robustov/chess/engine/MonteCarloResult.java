@@ -0,0 +1,61 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Move;
+
+/** Outcome of a Monte Carlo search: the most visited root move and its statistics. */
+public final class MonteCarloResult {
+  private final int bestMove;
+  private final long playouts;
+  private final long elapsedNanos;
+  private final double[] rewards;
+  private final int[] principalVariation;
+
+  MonteCarloResult(int bestMove, long playouts, long elapsedNanos, double[] rewards, int[] principalVariation) {
+    this.bestMove = bestMove;
+    this.playouts = playouts;
+    this.elapsedNanos = elapsedNanos;
+    this.rewards = rewards;
+    this.principalVariation = principalVariation;
+  }
+
+  /** Packed {@link Move}, or {@link Move#NONE} if the side to move has no legal move. */
+  public int getBestMove() {
+    return bestMove;
+  }
+
+  public long getPlayouts() {
+    return playouts;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public long getPlayoutsPerSecond() {
+    return elapsedNanos == 0 ? 0 : playouts * 1_000_000_000L / elapsedNanos;
+  }
+
+  /** Average reward of {@code color} over the playouts through the best move, in 0..1. */
+  public double getExpectedReward(Color color) {
+    return rewards[color.ordinal()];
+  }
+
+  /** The most visited line starting with the best move. */
+  public int[] getPrincipalVariation() {
+    return principalVariation.clone();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder line = new StringBuilder();
+    for (int move : principalVariation) {
+      line.append(' ').append(Move.toString(move));
+    }
+    StringBuilder expected = new StringBuilder();
+    for (Color color : Color.values()) {
+      expected.append(String.format(" %s=%.3f", color, rewards[color.ordinal()]));
+    }
+    return "playouts " + playouts + " pps " + getPlayoutsPerSecond() + " rewards" + expected + " pv" + line;
+  }
+}
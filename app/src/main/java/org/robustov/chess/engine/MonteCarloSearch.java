@@ -0,0 +1,279 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+import org.robustov.chess.model.PieceList;
+import org.robustov.chess.model.PieceType;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Monte Carlo tree search for four independent players. Every node keeps one reward
+ * total per color and each player picks the child that is best for itself (max^n), so
+ * no coalition is assumed. All worker threads share one tree: node statistics are
+ * atomics, children are published with a compare-and-set, and a thread walking down a
+ * node adds a virtual loss to it so that the others spread out to different lines.
+ *
+ * <p>Every thread plays on its own copy of the board through {@link Board#makeMove(int)},
+ * so eliminations and skipped turns happen exactly as in a game.
+ */
+public class MonteCarloSearch {
+  private static final int COLORS = Color.values().length;
+  private static final long REWARD_SCALE = 1_000_000L;
+  private static final double EXPLORATION = 1.4;
+  private static final int MAX_PLAYOUT_PLIES = 64;
+  private static final int MAX_TREE_DEPTH = 256;
+
+  private final int threads;
+  private volatile boolean stopped;
+
+  public MonteCarloSearch(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("At least one thread is required: " + threads);
+    }
+    this.threads = threads;
+  }
+
+  /**
+   * Runs playouts from the position until the time budget or the number of playouts
+   * ({@link SearchLimits#getNodes()}) is used up. The board itself is not modified.
+   */
+  public MonteCarloResult search(Board board, SearchLimits limits) {
+    if (limits.getTimeMillis() == 0 && limits.getNodes() == 0) {
+      throw new IllegalArgumentException("Monte Carlo search needs a time or playout limit");
+    }
+    long start = System.nanoTime();
+    long deadline = limits.getTimeMillis() > 0 ? start + limits.getTimeMillis() * 1_000_000L : Long.MAX_VALUE;
+    long maxPlayouts = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+    stopped = false;
+
+    Node root = new Node(Move.NONE, null);
+    root.expand(board, new MoveList());
+    Node[] rootChildren = root.children.get();
+    if (rootChildren.length == 0) {
+      return new MonteCarloResult(Move.NONE, 0, System.nanoTime() - start, new double[COLORS], new int[0]);
+    }
+
+    AtomicLong playouts = new AtomicLong();
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      Worker worker = new Worker(root, board.copy(), new SplittableRandom(start + i * 0x9E3779B97F4A7C15L));
+      workers[i] = new Thread(() -> {
+        while (!stopped && System.nanoTime() < deadline && playouts.getAndIncrement() < maxPlayouts) {
+          worker.iterate();
+        }
+      }, "mcts-" + i);
+      workers[i].start();
+    }
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        stopped = true;
+        Thread.currentThread().interrupt();
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+
+    Node best = mostVisited(root);
+    double[] rewards = new double[COLORS];
+    int visits = Math.max(1, best.visits.get());
+    for (int color = 0; color < COLORS; color++) {
+      rewards[color] = best.rewards.get(color) / (double) REWARD_SCALE / visits;
+    }
+    return new MonteCarloResult(best.move, root.visits.get(), elapsed, rewards, principalVariation(root));
+  }
+
+  /** Asks a running search, possibly on another thread, to return as soon as possible. */
+  public void stop() {
+    stopped = true;
+  }
+
+  private static Node mostVisited(Node node) {
+    Node best = null;
+    Node[] children = node.children.get();
+    if (children != null) {
+      for (Node child : children) {
+        if (best == null || child.visits.get() > best.visits.get()) {
+          best = child;
+        }
+      }
+    }
+    return best;
+  }
+
+  private static int[] principalVariation(Node root) {
+    MoveList line = new MoveList(16);
+    for (Node node = mostVisited(root); node != null && node.visits.get() > 0; node = mostVisited(node)) {
+      line.add(node.move);
+    }
+    int[] result = new int[line.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = line.get(i);
+    }
+    return result;
+  }
+
+  /** Tree node for the position after {@link #move}, played by {@link #mover}. */
+  private static final class Node {
+    final int move;
+    final Color mover;
+    final AtomicInteger visits = new AtomicInteger();
+    final AtomicInteger virtualLosses = new AtomicInteger();
+    final AtomicLongArray rewards = new AtomicLongArray(COLORS);
+    final AtomicReference<Node[]> children = new AtomicReference<>();
+
+    Node(int move, Color mover) {
+      this.move = move;
+      this.mover = mover;
+    }
+
+    /** Publishes the children for the position on {@code board}; a thread losing the race keeps the winner's. */
+    void expand(Board board, MoveList scratch) {
+      scratch.clear();
+      board.generateLegalMoves(board.getCurrentPlayer(), scratch);
+      Node[] created = new Node[scratch.size()];
+      for (int i = 0; i < created.length; i++) {
+        created[i] = new Node(scratch.get(i), board.getCurrentPlayer());
+      }
+      children.compareAndSet(null, created);
+    }
+
+    /**
+     * UCT from the point of view of the player to move here. Virtual losses count as
+     * visits without reward, which makes lines other threads are exploring look worse.
+     */
+    Node select(SplittableRandom random) {
+      Node[] options = children.get();
+      double logParent = Math.log(Math.max(1, visits.get() + virtualLosses.get()));
+      Node best = null;
+      double bestValue = Double.NEGATIVE_INFINITY;
+      int offset = random.nextInt(options.length);
+      for (int i = 0; i < options.length; i++) {
+        Node child = options[(i + offset) % options.length];
+        int n = child.visits.get() + child.virtualLosses.get();
+        double value = n == 0
+            ? Double.POSITIVE_INFINITY
+            : child.rewards.get(child.mover.ordinal()) / (double) REWARD_SCALE / n
+                + EXPLORATION * Math.sqrt(logParent / n);
+        if (value > bestValue) {
+          bestValue = value;
+          best = child;
+        }
+      }
+      return best;
+    }
+  }
+
+  /** One thread's board copy, scratch buffers and random source. */
+  private static final class Worker {
+    private final Node root;
+    private final Board board;
+    private final SplittableRandom random;
+    private final MoveList moves = new MoveList();
+    private final MoveList captures = new MoveList();
+    private final Node[] path = new Node[MAX_TREE_DEPTH];
+    private final long[] result = new long[COLORS];
+
+    Worker(Node root, Board board, SplittableRandom random) {
+      this.root = root;
+      this.board = board;
+      this.random = random;
+    }
+
+    void iterate() {
+      int depth = 0;
+      Node node = root;
+      while (node.children.get() != null && node.children.get().length > 0 && !isGameOver()
+          && depth < MAX_TREE_DEPTH) {
+        node = node.select(random);
+        node.virtualLosses.incrementAndGet();
+        board.makeMove(node.move);
+        path[depth++] = node;
+      }
+      if (node.children.get() == null && node.visits.get() > 0 && !isGameOver()) {
+        node.expand(board, moves);
+      }
+
+      int playoutPlies = playout();
+      for (int i = 0; i < playoutPlies; i++) {
+        board.unmakeMove();
+      }
+
+      root.visits.incrementAndGet();
+      for (int i = depth - 1; i >= 0; i--) {
+        Node visited = path[i];
+        for (int color = 0; color < COLORS; color++) {
+          if (result[color] != 0) {
+            visited.rewards.addAndGet(color, result[color]);
+          }
+        }
+        visited.visits.incrementAndGet();
+        visited.virtualLosses.decrementAndGet();
+        board.unmakeMove();
+      }
+    }
+
+    /** Plays random moves, preferring captures, and leaves the rewards in {@link #result}. */
+    private int playout() {
+      int plies = 0;
+      while (plies < MAX_PLAYOUT_PLIES && !isGameOver()) {
+        moves.clear();
+        board.generateLegalMoves(board.getCurrentPlayer(), moves);
+        if (moves.isEmpty()) {
+          break;
+        }
+        captures.clear();
+        for (int i = 0; i < moves.size(); i++) {
+          if (Move.isCapture(moves.get(i))) {
+            captures.add(moves.get(i));
+          }
+        }
+        MoveList from = !captures.isEmpty() && random.nextBoolean() ? captures : moves;
+        board.makeMove(from.get(random.nextInt(from.size())));
+        plies++;
+      }
+      score();
+      return plies;
+    }
+
+    private boolean isGameOver() {
+      int active = 0;
+      for (Color color : Color.values()) {
+        if (board.isPlayerActive(color)) {
+          active++;
+        }
+      }
+      return active <= 1;
+    }
+
+    /**
+     * The last player standing takes the whole reward. An unfinished game is split by
+     * score among the players still in it, with a bonus for keeping the king.
+     */
+    private void score() {
+      PieceList pieces = board.getPieceList();
+      long total = 0;
+      for (Color color : Color.values()) {
+        long material = 0;
+        if (board.isPlayerActive(color)) {
+          material += Math.max(0, board.getScore(color));
+          if (pieces.count(color, PieceType.KING) > 0) {
+            material += 1000;
+          }
+        }
+        result[color.ordinal()] = material;
+        total += material;
+      }
+      for (int color = 0; color < COLORS; color++) {
+        result[color] = total == 0 ? 0 : result[color] * REWARD_SCALE / total;
+      }
+    }
+  }
+}
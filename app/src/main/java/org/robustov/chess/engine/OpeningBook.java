@@ -0,0 +1,161 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Read-only opening book, memory-mapped so that lookups copy nothing onto the heap and
+ * the book can be far larger than the heap.
+ *
+ * <p>The file, written by {@link OpeningBookBuilder}, is a 16-byte header (magic and
+ * entry count) followed by 16-byte entries sorted by position key: the
+ * {@link Board#getZobristKey() Zobrist key}, then the packed {@link Move} and its weight
+ * as two ints, all big-endian. A position's moves are adjacent and found by binary
+ * search. The file is mapped in chunks of 1 GB, since one mapping cannot exceed 2 GB;
+ * entries never straddle chunks.
+ *
+ * <p>Lookups only read the mapping and are safe from any number of threads.
+ */
+public final class OpeningBook implements Closeable {
+  static final long MAGIC = 0x4643_424F_4F4B_0001L;
+  static final int HEADER_BYTES = 16;
+  static final int ENTRY_BYTES = 16;
+  private static final long CHUNK_BYTES = 1L << 30;
+
+  /** A book move and how often it was played, or how good it was judged. */
+  public record BookMove(int move, int weight) {
+    @Override
+    public String toString() {
+      return Move.toString(move) + " (" + weight + ")";
+    }
+  }
+
+  private final FileChannel channel;
+  private final MappedByteBuffer[] chunks;
+  private final long entries;
+
+  private OpeningBook(FileChannel channel, MappedByteBuffer[] chunks, long entries) {
+    this.channel = channel;
+    this.chunks = chunks;
+    this.entries = entries;
+  }
+
+  public static OpeningBook open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < HEADER_BYTES) {
+        throw new IOException("Not an opening book: " + file);
+      }
+      int count = (int) ((size + CHUNK_BYTES - 1) / CHUNK_BYTES);
+      MappedByteBuffer[] chunks = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        long offset = i * CHUNK_BYTES;
+        chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(CHUNK_BYTES, size - offset));
+      }
+      if (chunks[0].getLong(0) != MAGIC) {
+        throw new IOException("Not an opening book: " + file);
+      }
+      long entries = chunks[0].getLong(8);
+      if (size != HEADER_BYTES + entries * ENTRY_BYTES) {
+        throw new IOException("Truncated opening book: " + file);
+      }
+      return new OpeningBook(channel, chunks, entries);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /** Number of (position, move) entries. */
+  public long size() {
+    return entries;
+  }
+
+  /**
+   * Book moves for the position on {@code board}, heaviest first. Moves that are not legal
+   * there (a key collision or a book built with other rules) are left out.
+   */
+  public List<BookMove> lookup(Board board) {
+    long key = board.getZobristKey();
+    List<BookMove> moves = new ArrayList<>();
+    long first = lowerBound(key);
+    if (first == entries || key(first) != key) {
+      return moves;
+    }
+    MoveList legal = new MoveList();
+    board.generateLegalMoves(board.getCurrentPlayer(), legal);
+    for (long i = first; i < entries && key(i) == key; i++) {
+      int move = (int) (readLong(i, 8) >>> 32);
+      if (legal.contains(Move.from(move), Move.to(move))) {
+        moves.add(new BookMove(move, weight(i)));
+      }
+    }
+    moves.sort((a, b) -> Integer.compare(b.weight(), a.weight()));
+    return moves;
+  }
+
+  /** A book move chosen with probability proportional to its weight, or {@link Move#NONE}. */
+  public int choose(Board board, RandomGenerator random) {
+    List<BookMove> moves = lookup(board);
+    long total = 0;
+    for (BookMove move : moves) {
+      total += move.weight();
+    }
+    if (total == 0) {
+      return Move.NONE;
+    }
+    long pick = random.nextLong(total);
+    for (BookMove move : moves) {
+      pick -= move.weight();
+      if (pick < 0) {
+        return move.move();
+      }
+    }
+    return Move.NONE;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /** Index of the first entry whose key is not below {@code key}. */
+  private long lowerBound(long key) {
+    long low = 0;
+    long high = entries;
+    while (low < high) {
+      long middle = (low + high) >>> 1;
+      if (key(middle) < key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private long key(long entry) {
+    return readLong(entry, 0);
+  }
+
+  private int weight(long entry) {
+    return (int) readLong(entry, 8);
+  }
+
+  private long readLong(long entry, int field) {
+    long position = HEADER_BYTES + entry * ENTRY_BYTES + field;
+    return chunks[(int) (position / CHUNK_BYTES)].getLong((int) (position % CHUNK_BYTES));
+  }
+}
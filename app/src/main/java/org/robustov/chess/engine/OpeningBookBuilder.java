@@ -0,0 +1,60 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Board;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects (position, move) pairs from played games and writes them as an
+ * {@link OpeningBook} file. The weight of a move is the number of times it was added.
+ * Thread-safe, so self-play workers can add their games concurrently.
+ */
+public final class OpeningBookBuilder {
+  private final Map<Long, Map<Integer, Integer>> positions = new HashMap<>();
+
+  /** Counts {@code move} as played once more in the position on {@code board}. */
+  public void add(Board board, int move) {
+    add(board.getZobristKey(), move, 1);
+  }
+
+  public synchronized void add(long key, int move, int weight) {
+    if (weight < 1) {
+      throw new IllegalArgumentException("Weight must be positive: " + weight);
+    }
+    positions.computeIfAbsent(key, k -> new HashMap<>())
+        .merge(move, weight, (a, b) -> (int) Math.min(Integer.MAX_VALUE, (long) a + b));
+  }
+
+  public synchronized int positions() {
+    return positions.size();
+  }
+
+  /** Writes the book, entries sorted by key, replacing {@code file}. */
+  public synchronized void write(Path file) throws IOException {
+    List<Long> keys = new ArrayList<>(positions.keySet());
+    keys.sort(Long::compare);
+    long count = 0;
+    for (Map<Integer, Integer> moves : positions.values()) {
+      count += moves.size();
+    }
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeLong(OpeningBook.MAGIC);
+      out.writeLong(count);
+      for (long key : keys) {
+        for (Map.Entry<Integer, Integer> entry : positions.get(key).entrySet()) {
+          out.writeLong(key);
+          out.writeInt(entry.getKey());
+          out.writeInt(entry.getValue());
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Lazy SMP: several {@link ParanoidSearch} threads search the same position on their
+ * own board copies and share nothing but one {@link TranspositionTable}. They cooperate
+ * only through the table, where one thread finds the cutoffs and best moves the others
+ * then reuse. Every other helper starts one iteration deeper, so the threads do not all
+ * walk the same tree in step.
+ *
+ * <p>The first thread obeys the limits; the helpers run until it is done. The reported
+ * line comes from whichever thread completed the deepest iteration.
+ */
+public class ParallelSearch {
+  private final int threads;
+  private final TranspositionTable table;
+  private final List<ParanoidSearch> running = new ArrayList<>();
+  private volatile Consumer<SearchResult> listener;
+  private volatile Tablebase tablebase;
+
+  public ParallelSearch(int threads, int hashMegabytes) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("At least one thread is required: " + threads);
+    }
+    this.threads = threads;
+    this.table = new TranspositionTable(hashMegabytes);
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  /** Called after every iteration the main thread completes, on that thread. */
+  public void setProgressListener(Consumer<SearchResult> listener) {
+    this.listener = listener;
+  }
+
+  /** Endgame tables for every thread, see {@link ParanoidSearch#setTablebase(Tablebase)}. */
+  public void setTablebase(Tablebase tablebase) {
+    this.tablebase = tablebase;
+  }
+
+  /** Searches the position for the side to move; {@code board} itself is not touched. */
+  public AnalysisResult search(Board board, SearchLimits limits) {
+    long start = System.nanoTime();
+    table.newSearch();
+    List<ParanoidSearch> searches = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      ParanoidSearch search = new ParanoidSearch(table);
+      search.setTablebase(tablebase);
+      searches.add(search);
+    }
+    searches.get(0).setProgressListener(listener);
+    synchronized (running) {
+      running.clear();
+      running.addAll(searches);
+    }
+
+    SearchLimits helperLimits = new SearchLimits(SearchLimits.MAX_DEPTH, limits.getTimeMillis(), 0);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<SearchResult>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < threads; i++) {
+        ParanoidSearch search = searches.get(i);
+        Board copy = board.copy();
+        if (i == 0) {
+          futures.add(pool.submit(() -> search.search(copy, limits, 1)));
+        } else {
+          int firstDepth = 1 + i % 2;
+          futures.add(pool.submit(() -> search.search(copy, helperLimits, firstDepth)));
+        }
+      }
+      SearchResult main = futures.get(0).get();
+      searches.forEach(ParanoidSearch::stop);
+
+      SearchResult best = main;
+      long[] threadNodes = new long[threads];
+      for (int i = 0; i < threads; i++) {
+        SearchResult result = i == 0 ? main : futures.get(i).get();
+        threadNodes[i] = result.getNodes();
+        if (result.getDepth() > best.getDepth() && result.getBestMove() != Move.NONE) {
+          best = result;
+        }
+      }
+      return new AnalysisResult(best, threadNodes, System.nanoTime() - start, table.hashfull());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Search interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Search thread failed", e.getCause());
+    } finally {
+      searches.forEach(ParanoidSearch::stop);
+      pool.shutdownNow();
+      synchronized (running) {
+        running.clear();
+      }
+    }
+  }
+
+  /** Asks a running search, possibly on another thread, to return as soon as possible. */
+  public void stop() {
+    synchronized (running) {
+      running.forEach(ParanoidSearch::stop);
+    }
+  }
+}
@@ -0,0 +1,428 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Bitboard;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Evaluation;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+import org.robustov.chess.model.PieceBitboards;
+import org.robustov.chess.model.PieceType;
+import org.robustov.chess.model.Tablebase;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Iterative-deepening alpha-beta search for the four-player game under the paranoid
+ * assumption: the side to move at the root maximizes, and the three opponents are
+ * treated as one coalition that minimizes its score, whichever of them is moving.
+ * Moves are played on the board with {@link Board#makeMove(int)}, so eliminations and
+ * skipped turns follow the real rules; the board is left as it was given.
+ *
+ * <p>Results are cached in a {@link TranspositionTable}. Scores are from the root
+ * player's point of view, so the root color is folded into every key and one table can
+ * serve searches for different players.
+ *
+ * <p>Instances are not thread-safe; give every thread its own search and board copy.
+ */
+public class ParanoidSearch {
+  public static final int MATE = 1_000_000;
+
+  private static final int INFINITY = MATE + 1;
+  private static final int TABLEBASE_WIN = MATE / 2;
+  private static final int MAX_QUIESCENCE = 4;
+  private static final int DELTA_MARGIN = 200;
+  private static final int MAX_PLY = SearchLimits.MAX_DEPTH + MAX_QUIESCENCE + 1;
+  /** Lowest tablebase win: the longest distance a table can hold, found at the deepest ply. */
+  private static final int TABLEBASE_BAND = TABLEBASE_WIN - MAX_PLY - Short.MAX_VALUE;
+  private static final int CHECK_INTERVAL = 1024;
+  private static final PieceType[] PIECE_TYPES = PieceType.values();
+  private static final long[] ROOT_KEYS = {
+      0x6A09_E667_F3BC_C908L, 0xBB67_AE85_84CA_A73BL, 0x3C6E_F372_FE94_F82BL, 0xA54F_F53A_5F1D_36F1L
+  };
+
+  private final TranspositionTable table;
+
+  private final MoveList[] moveLists = new MoveList[MAX_PLY];
+  private final int[][] scores = new int[MAX_PLY][];
+  private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+  private final int[] pvLength = new int[MAX_PLY];
+
+  private Board board;
+  private Color root;
+  private long rootKey;
+  private long nodes;
+  private long nodeLimit;
+  private long deadline;
+  private volatile boolean stopped;
+  private boolean aborted;
+  private int[] previousPv = new int[0];
+  private Consumer<SearchResult> listener;
+  private Tablebase tablebase;
+
+  public ParanoidSearch() {
+    this(new TranspositionTable(16));
+  }
+
+  /** A search using {@code table}, which may be shared with searches on other threads. */
+  public ParanoidSearch(TranspositionTable table) {
+    this.table = table;
+    for (int ply = 0; ply < MAX_PLY; ply++) {
+      moveLists[ply] = new MoveList();
+      scores[ply] = new int[256];
+    }
+  }
+
+  /**
+   * Searches the position for the side to move until a limit is reached and returns the
+   * result of the deepest completed iteration.
+   */
+  public SearchResult search(Board board, SearchLimits limits) {
+    stopped = false;
+    table.newSearch();
+    return search(board, limits, 1);
+  }
+
+  /**
+   * Iterative deepening from {@code firstDepth} without starting a new table generation
+   * or clearing a pending {@link #stop()}; {@link ParallelSearch} runs its threads this
+   * way, the helpers a little ahead of the main thread.
+   */
+  SearchResult search(Board board, SearchLimits limits, int firstDepth) {
+    this.board = board;
+    this.root = board.getCurrentPlayer();
+    this.rootKey = ROOT_KEYS[root.ordinal()];
+    long start = System.nanoTime();
+    nodes = 0;
+    nodeLimit = limits.getNodes();
+    deadline = limits.getTimeMillis() > 0 ? start + limits.getTimeMillis() * 1_000_000L : Long.MAX_VALUE;
+    aborted = false;
+    previousPv = new int[0];
+
+    MoveList rootMoves = new MoveList();
+    board.generateLegalMoves(root, rootMoves);
+    if (rootMoves.isEmpty()) {
+      return new SearchResult(Move.NONE, evaluate(), 0, 0, System.nanoTime() - start, new int[0]);
+    }
+
+    // Already decided, e.g. the side to move is the only player left: any move will do.
+    int terminal = terminalScore(0);
+    if (terminal != 0) {
+      return new SearchResult(rootMoves.get(0), terminal, 0, 0, System.nanoTime() - start,
+          new int[] { rootMoves.get(0) });
+    }
+
+    SearchResult result = new SearchResult(rootMoves.get(0), evaluate(), 0, 0, 0, new int[] { rootMoves.get(0) });
+    for (int depth = Math.min(firstDepth, limits.getDepth()); depth <= limits.getDepth(); depth++) {
+      int score = alphaBeta(depth, 0, -INFINITY, INFINITY);
+      if (aborted) {
+        break;
+      }
+      if (pvLength[0] == 0) {
+        // No root move was scored, so there is nothing better than the last result.
+        continue;
+      }
+      previousPv = Arrays.copyOf(pv[0], pvLength[0]);
+      result = new SearchResult(previousPv[0], score, depth, nodes, System.nanoTime() - start, previousPv);
+      if (listener != null) {
+        listener.accept(result);
+      }
+      if (isMateScore(score)) {
+        break;
+      }
+    }
+    return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes,
+        System.nanoTime() - start, result.getPrincipalVariation());
+  }
+
+  /** Called on the searching thread after every completed iteration, e.g. to print progress. */
+  public void setProgressListener(Consumer<SearchResult> listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Endgame tables to look positions up in below the root; a won table position scores
+   * above any evaluation, nearer wins higher, but below a mate the search itself sees.
+   */
+  public void setTablebase(Tablebase tablebase) {
+    this.tablebase = tablebase;
+  }
+
+  /** Whether {@code score} announces the end of the game for the root player, either way. */
+  public static boolean isMateScore(int score) {
+    return Math.abs(score) >= MATE - MAX_PLY;
+  }
+
+  /** Asks a running search, possibly on another thread, to return as soon as possible. */
+  public void stop() {
+    stopped = true;
+  }
+
+  private int alphaBeta(int depth, int ply, int alpha, int beta) {
+    pvLength[ply] = 0;
+    int terminal = terminalScore(ply);
+    if (terminal != 0) {
+      return terminal;
+    }
+    if (ply > 0 && tablebase != null) {
+      Optional<Tablebase.Result> known = board.probeTablebase(tablebase);
+      if (known.isPresent()) {
+        return tablebaseScore(known.get(), ply);
+      }
+    }
+    if (depth == 0) {
+      return quiescence(ply, alpha, beta, 0);
+    }
+    if (shouldAbort()) {
+      return 0;
+    }
+
+    long key = board.getZobristKey() ^ rootKey;
+    long entry = table.probe(key);
+    int hashMove = Move.NONE;
+    if (entry != 0) {
+      hashMove = TranspositionTable.move(entry);
+      if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+        int stored = fromTable(TranspositionTable.score(entry), ply);
+        int bound = TranspositionTable.bound(entry);
+        if (bound == TranspositionTable.EXACT
+            || (bound == TranspositionTable.LOWER && stored >= beta)
+            || (bound == TranspositionTable.UPPER && stored <= alpha)) {
+          return stored;
+        }
+      }
+    }
+
+    Color side = board.getCurrentPlayer();
+    boolean maximizing = side == root;
+    MoveList moves = moveLists[ply];
+    moves.clear();
+    board.generateLegalMoves(side, moves);
+    if (moves.isEmpty()) {
+      return evaluate();
+    }
+    orderMoves(moves, ply, hashMove, ply < previousPv.length ? previousPv[ply] : Move.NONE);
+
+    int originalAlpha = alpha;
+    int originalBeta = beta;
+    int bestMove = Move.NONE;
+
+    int best = maximizing ? -INFINITY : INFINITY;
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      board.makeMove(move);
+      int score = alphaBeta(depth - 1, ply + 1, alpha, beta);
+      board.unmakeMove();
+      if (aborted) {
+        return 0;
+      }
+
+      if (maximizing ? score > best : score < best) {
+        best = score;
+        bestMove = move;
+        updatePv(ply, move);
+      }
+      if (maximizing) {
+        alpha = Math.max(alpha, score);
+      } else {
+        beta = Math.min(beta, score);
+      }
+      if (alpha >= beta) {
+        break;
+      }
+    }
+
+    int bound = best <= originalAlpha ? TranspositionTable.UPPER
+        : best >= originalBeta ? TranspositionTable.LOWER
+        : TranspositionTable.EXACT;
+    table.store(key, bestMove, toTable(best, ply), depth, bound);
+    return best;
+  }
+
+  /**
+   * Mate and tablebase scores count plies from the root; the table stores them relative
+   * to the node.
+   */
+  private static int toTable(int score, int ply) {
+    return score >= TABLEBASE_BAND ? score + ply : score <= -TABLEBASE_BAND ? score - ply : score;
+  }
+
+  private static int fromTable(int score, int ply) {
+    return score >= TABLEBASE_BAND ? score - ply : score <= -TABLEBASE_BAND ? score + ply : score;
+  }
+
+  /** Captures only, with stand-pat for whichever side is to move. */
+  private int quiescence(int ply, int alpha, int beta, int qdepth) {
+    pvLength[ply] = 0;
+    int standPat = evaluate();
+    if (qdepth == MAX_QUIESCENCE || shouldAbort()) {
+      return standPat;
+    }
+
+    Color side = board.getCurrentPlayer();
+    boolean maximizing = side == root;
+    if (maximizing) {
+      if (standPat >= beta) {
+        return standPat;
+      }
+      alpha = Math.max(alpha, standPat);
+    } else {
+      if (standPat <= alpha) {
+        return standPat;
+      }
+      beta = Math.min(beta, standPat);
+    }
+
+    // Skip captures that lose material in the exchange, and (delta pruning) those that
+    // cannot bring the score back into the window.
+    PieceBitboards bitboards = board.getBitboards();
+    MoveList moves = moveLists[ply];
+    moves.clear();
+    board.generateLegalMoves(side, moves);
+    int captures = 0;
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      if (Move.isCapture(move) && board.see(Move.from(move), Move.to(move)) >= 0) {
+        int gain = Evaluation.pieceValue(typeAt(bitboards, Move.to(move))) + DELTA_MARGIN;
+        if (maximizing ? standPat + gain > alpha : standPat - gain < beta) {
+          moves.set(captures++, move);
+        }
+      }
+    }
+    moves.truncate(captures);
+    orderMoves(moves, ply, Move.NONE, Move.NONE);
+
+    int best = standPat;
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      board.makeMove(move);
+      int terminal = terminalScore(ply + 1);
+      pvLength[ply + 1] = 0;
+      int score = terminal != 0 ? terminal : quiescence(ply + 1, alpha, beta, qdepth + 1);
+      board.unmakeMove();
+      if (aborted) {
+        return 0;
+      }
+
+      if (maximizing ? score > best : score < best) {
+        best = score;
+        updatePv(ply, move);
+      }
+      if (maximizing) {
+        alpha = Math.max(alpha, score);
+      } else {
+        beta = Math.min(beta, score);
+      }
+      if (alpha >= beta) {
+        break;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Mate score when the root player is out of the game or is the last one left, 0 while
+   * the game goes on. Closer results score higher so the search prefers quick wins.
+   */
+  private int terminalScore(int ply) {
+    if (!board.isPlayerActive(root)) {
+      return -MATE + ply;
+    }
+    for (Color color : Color.values()) {
+      if (color != root && board.isPlayerActive(color)) {
+        return 0;
+      }
+    }
+    return MATE - ply;
+  }
+
+  private int tablebaseScore(Tablebase.Result result, int ply) {
+    if (result.outcome() == Tablebase.Outcome.DRAW) {
+      return 0;
+    }
+    int score = TABLEBASE_WIN - ply - result.distance();
+    boolean rootWins = (result.outcome() == Tablebase.Outcome.WIN) == (board.getCurrentPlayer() == root);
+    return rootWins ? score : -score;
+  }
+
+  private boolean shouldAbort() {
+    if (aborted) {
+      return true;
+    }
+    nodes++;
+    if ((nodes & (CHECK_INTERVAL - 1)) == 0) {
+      aborted = stopped || System.nanoTime() > deadline;
+    }
+    if (nodeLimit > 0 && nodes >= nodeLimit) {
+      aborted = true;
+    }
+    return aborted;
+  }
+
+  private void updatePv(int ply, int move) {
+    pv[ply][0] = move;
+    System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+    pvLength[ply] = pvLength[ply + 1] + 1;
+  }
+
+  /**
+   * The table's best move first, then the previous best line, then captures that do not
+   * lose material by their exchange value, quiet moves, and losing captures last.
+   */
+  private void orderMoves(MoveList moves, int ply, int hashMove, int pvMove) {
+    int[] keys = scores[ply];
+    if (keys.length < moves.size()) {
+      keys = scores[ply] = new int[moves.size()];
+    }
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      if (move == hashMove) {
+        keys[i] = Integer.MAX_VALUE;
+      } else if (move == pvMove) {
+        keys[i] = Integer.MAX_VALUE - 1;
+      } else if (Move.isCapture(move)) {
+        int see = board.see(Move.from(move), Move.to(move));
+        keys[i] = see >= 0 ? 1000 + see : see;
+      } else {
+        keys[i] = 0;
+      }
+    }
+    for (int i = 1; i < moves.size(); i++) {
+      int move = moves.get(i);
+      int key = keys[i];
+      int j = i - 1;
+      while (j >= 0 && keys[j] < key) {
+        keys[j + 1] = keys[j];
+        moves.set(j + 1, moves.get(j));
+        j--;
+      }
+      keys[j + 1] = key;
+      moves.set(j + 1, move);
+    }
+  }
+
+  /**
+   * Score of the root player minus the scores of the coalition, in centipawns. The board
+   * keeps the material and piece-square sums per color, so this costs four reads.
+   */
+  int evaluate() {
+    int score = 0;
+    for (Color color : Color.values()) {
+      score += color == root ? board.getScore(color) : -board.getScore(color);
+    }
+    return score;
+  }
+
+  static PieceType typeAt(PieceBitboards bitboards, int square) {
+    int word = square >>> 6;
+    long mask = 1L << square;
+    for (PieceType type : PIECE_TYPES) {
+      if ((bitboards.type(type, word) & mask) != 0) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("No piece on " + Bitboard.fileOf(square) + Bitboard.rankOf(square));
+  }
+}
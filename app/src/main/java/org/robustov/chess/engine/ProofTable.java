@@ -0,0 +1,66 @@
+package org.robustov.chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Proof results of {@link MateSolver} by position hash: the fewest attacker moves a win
+ * is known for and the most moves it is known to fail with. Shared by all solver
+ * threads without locks; each slot holds the key XOR-ed with its data, so a slot torn
+ * by concurrent writers fails verification and reads as unknown.
+ */
+final class ProofTable {
+  static final int MAX_MOVES = 255;
+  static final int UNKNOWN = 0;
+  static final int PROVED = 1;
+  static final int DISPROVED = 2;
+
+  private final long[] slots;
+  private final int mask;
+
+  ProofTable(int megabytes) {
+    if (megabytes < 1) {
+      throw new IllegalArgumentException("Table size must be at least 1 MB: " + megabytes);
+    }
+    int entries = Integer.highestOneBit((int) Math.min(1 << 30, megabytes * (1L << 20) / 16));
+    slots = new long[entries * 2];
+    mask = entries - 1;
+  }
+
+  void clear() {
+    Arrays.fill(slots, 0L);
+  }
+
+  int probe(long key, int moves) {
+    long data = read(key);
+    int proved = (int) (data & 0xFF);
+    int disproved = (int) ((data >>> 8) & 0xFF);
+    if (proved != 0 && moves >= proved) {
+      return PROVED;
+    }
+    if (moves <= disproved) {
+      return DISPROVED;
+    }
+    return UNKNOWN;
+  }
+
+  void store(long key, int moves, boolean proved) {
+    long data = read(key);
+    int provedAt = (int) (data & 0xFF);
+    int disprovedAt = (int) ((data >>> 8) & 0xFF);
+    if (proved) {
+      provedAt = provedAt == 0 ? moves : Math.min(provedAt, moves);
+    } else {
+      disprovedAt = Math.max(disprovedAt, moves);
+    }
+    data = (long) disprovedAt << 8 | provedAt;
+    int slot = ((int) key & mask) << 1;
+    slots[slot] = key ^ data;
+    slots[slot + 1] = data;
+  }
+
+  private long read(long key) {
+    int slot = ((int) key & mask) << 1;
+    long data = slots[slot + 1];
+    return (slots[slot] ^ data) == key ? data : 0;
+  }
+}
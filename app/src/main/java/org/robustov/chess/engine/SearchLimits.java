@@ -0,0 +1,47 @@
+package org.robustov.chess.engine;
+
+/** When a search has to stop: a depth, a time budget and a node budget, whichever comes first. */
+public final class SearchLimits {
+  public static final int MAX_DEPTH = 64;
+
+  private final int depth;
+  private final long timeMillis;
+  private final long nodes;
+
+  /** Zero for the time or node budget means unlimited. */
+  public SearchLimits(int depth, long timeMillis, long nodes) {
+    if (depth < 1 || depth > MAX_DEPTH) {
+      throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH + ": " + depth);
+    }
+    if (timeMillis < 0 || nodes < 0) {
+      throw new IllegalArgumentException("Limits must not be negative");
+    }
+    this.depth = depth;
+    this.timeMillis = timeMillis;
+    this.nodes = nodes;
+  }
+
+  public static SearchLimits depth(int depth) {
+    return new SearchLimits(depth, 0, 0);
+  }
+
+  public static SearchLimits time(long millis) {
+    return new SearchLimits(MAX_DEPTH, millis, 0);
+  }
+
+  public static SearchLimits nodes(long nodes) {
+    return new SearchLimits(MAX_DEPTH, 0, nodes);
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public long getTimeMillis() {
+    return timeMillis;
+  }
+
+  public long getNodes() {
+    return nodes;
+  }
+}
@@ -0,0 +1,72 @@
+package org.robustov.chess.engine;
+
+import org.robustov.chess.model.Move;
+
+/** Outcome of the last completed iteration of a search, from the point of view of the side to move. */
+public final class SearchResult {
+  private final int bestMove;
+  private final int score;
+  private final int depth;
+  private final long nodes;
+  private final long elapsedNanos;
+  private final int[] principalVariation;
+
+  public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos, int[] principalVariation) {
+    this.bestMove = bestMove;
+    this.score = score;
+    this.depth = depth;
+    this.nodes = nodes;
+    this.elapsedNanos = elapsedNanos;
+    this.principalVariation = principalVariation.clone();
+  }
+
+  /** Packed {@link Move}, or {@link Move#NONE} if the side to move has no legal move. */
+  public int getBestMove() {
+    return bestMove;
+  }
+
+  public int getScore() {
+    return score;
+  }
+
+  public boolean isMateScore() {
+    return ParanoidSearch.isMateScore(score);
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public long getNodes() {
+    return nodes;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  public long getNodesPerSecond() {
+    return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+  }
+
+  public int[] getPrincipalVariation() {
+    return principalVariation.clone();
+  }
+
+  public String principalVariationString() {
+    StringBuilder line = new StringBuilder();
+    for (int move : principalVariation) {
+      if (line.length() > 0) {
+        line.append(' ');
+      }
+      line.append(Move.toString(move));
+    }
+    return line.toString();
+  }
+
+  @Override
+  public String toString() {
+    return "depth " + depth + " score " + score + " nodes " + nodes + " nps " + getNodesPerSecond()
+        + " pv " + principalVariationString();
+  }
+}
@@ -0,0 +1,97 @@
+package org.robustov.chess.engine;
+
+/**
+ * Sequential probability ratio test between two Elo hypotheses for game scores in 0..1,
+ * using the usual normal approximation of the log-likelihood ratio: with n games of
+ * mean m and variance v, {@code LLR = n (s1 - s0) (2m - s0 - s1) / 2v}, where s0 and s1
+ * are the expected scores at elo0 and elo1. The test stops once the ratio leaves the
+ * bounds set by the error rates alpha and beta.
+ *
+ * <p>Not thread-safe; feed it results from one thread.
+ */
+public final class Sprt {
+  public enum Decision {
+    CONTINUE, ACCEPT_H0, ACCEPT_H1
+  }
+
+  private final double elo0;
+  private final double elo1;
+  private final double lower;
+  private final double upper;
+  private long games;
+  private double sum;
+  private double sumOfSquares;
+
+  public Sprt(double elo0, double elo1, double alpha, double beta) {
+    if (elo1 <= elo0) {
+      throw new IllegalArgumentException("elo1 must be greater than elo0: " + elo0 + ", " + elo1);
+    }
+    if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+      throw new IllegalArgumentException("Error rates must be between 0 and 1: " + alpha + ", " + beta);
+    }
+    this.elo0 = elo0;
+    this.elo1 = elo1;
+    this.lower = Math.log(beta / (1 - alpha));
+    this.upper = Math.log((1 - beta) / alpha);
+  }
+
+  /** Adds one game; {@code score} is 1 for a win of the tested side, 0 for a loss. */
+  public void add(double score) {
+    if (score < 0 || score > 1) {
+      throw new IllegalArgumentException("Score must be between 0 and 1: " + score);
+    }
+    games++;
+    sum += score;
+    sumOfSquares += score * score;
+  }
+
+  public long getGames() {
+    return games;
+  }
+
+  public double getMean() {
+    return games == 0 ? 0.5 : sum / games;
+  }
+
+  /** Elo difference implied by the mean score so far. */
+  public double getElo() {
+    double mean = Math.min(Math.max(getMean(), 1e-6), 1 - 1e-6);
+    return -400 * Math.log10(1 / mean - 1);
+  }
+
+  public double getLlr() {
+    if (games < 2) {
+      return 0;
+    }
+    double mean = getMean();
+    double variance = sumOfSquares / games - mean * mean;
+    if (variance <= 0) {
+      return 0;
+    }
+    double s0 = expectedScore(elo0);
+    double s1 = expectedScore(elo1);
+    return games * (s1 - s0) * (2 * mean - s0 - s1) / (2 * variance);
+  }
+
+  public double getLowerBound() {
+    return lower;
+  }
+
+  public double getUpperBound() {
+    return upper;
+  }
+
+  public Decision getDecision() {
+    double llr = getLlr();
+    return llr >= upper ? Decision.ACCEPT_H1 : llr <= lower ? Decision.ACCEPT_H0 : Decision.CONTINUE;
+  }
+
+  private static double expectedScore(double elo) {
+    return 1 / (1 + Math.pow(10, -elo / 400));
+  }
+
+  @Override
+  public String toString() {
+    return String.format("LLR %.2f (%.2f, %.2f) [%.1f, %.1f] %s", getLlr(), lower, upper, elo0, elo1, getDecision());
+  }
+}
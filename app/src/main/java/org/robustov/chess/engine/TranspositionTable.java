@@ -0,0 +1,131 @@
+package org.robustov.chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results keyed by a 64-bit position key, safe to probe
+ * and store from many threads without locks.
+ *
+ * <p>Entries are two longs in one preallocated array: the key XOR-ed with the data, then
+ * the data (move, bound, depth, age and score packed together). A reader that catches a
+ * half-written entry sees a key that does not match and treats it as a miss, so racing
+ * writers can lose an entry but never produce a wrong one. Entries are grouped in
+ * buckets of four; a store replaces the same key, an empty slot, or the entry that is
+ * oldest and then shallowest.
+ */
+public final class TranspositionTable {
+  public static final int UPPER = 1;
+  public static final int LOWER = 2;
+  public static final int EXACT = 3;
+
+  private static final int BUCKET = 4;
+  private static final int MOVE_BITS = 19;
+  private static final int BOUND_SHIFT = MOVE_BITS;
+  private static final int DEPTH_SHIFT = BOUND_SHIFT + 2;
+  private static final int AGE_SHIFT = DEPTH_SHIFT + 8;
+  private static final int SCORE_SHIFT = AGE_SHIFT + 8;
+
+  private final long[] slots;
+  private final int bucketMask;
+  private volatile int age;
+
+  public TranspositionTable(int megabytes) {
+    if (megabytes < 1) {
+      throw new IllegalArgumentException("Table size must be at least 1 MB: " + megabytes);
+    }
+    long entries = megabytes * (1L << 20) / 16;
+    int buckets = Integer.highestOneBit((int) Math.min(1 << 27, Math.max(1, entries / BUCKET)));
+    slots = new long[buckets * BUCKET * 2];
+    bucketMask = buckets - 1;
+  }
+
+  public void clear() {
+    Arrays.fill(slots, 0L);
+  }
+
+  /** Starts a new search: entries stored before now are replaced first. */
+  public void newSearch() {
+    age = (age + 1) & 0xFF;
+  }
+
+  /** Packed entry data for {@code key}, or 0 on a miss; read it with the static accessors. */
+  public long probe(long key) {
+    int base = bucket(key);
+    for (int i = 0; i < BUCKET; i++) {
+      int slot = base + i * 2;
+      long data = slots[slot + 1];
+      if (data != 0 && (slots[slot] ^ data) == key) {
+        return data;
+      }
+    }
+    return 0;
+  }
+
+  public void store(long key, int move, int score, int depth, int bound) {
+    int current = age;
+    long data = (move & ((1L << MOVE_BITS) - 1))
+        | (long) bound << BOUND_SHIFT
+        | (long) Math.min(depth, 255) << DEPTH_SHIFT
+        | (long) current << AGE_SHIFT
+        | (long) score << SCORE_SHIFT;
+
+    int base = bucket(key);
+    int victim = base;
+    int victimRank = Integer.MAX_VALUE;
+    for (int i = 0; i < BUCKET; i++) {
+      int slot = base + i * 2;
+      long existing = slots[slot + 1];
+      if (existing == 0 || (slots[slot] ^ existing) == key) {
+        // Keep the best move of a deeper result for the same position if the new one has none.
+        if (existing != 0 && move == 0) {
+          data |= existing & ((1L << MOVE_BITS) - 1);
+        }
+        victim = slot;
+        break;
+      }
+      int rank = depth(existing) - (((current - age(existing)) & 0xFF) << 8);
+      if (rank < victimRank) {
+        victimRank = rank;
+        victim = slot;
+      }
+    }
+    slots[victim] = key ^ data;
+    slots[victim + 1] = data;
+  }
+
+  /** Share of used slots among the first thousand, in permille, for progress output. */
+  public int hashfull() {
+    int used = 0;
+    int sample = Math.min(1000, slots.length / 2);
+    for (int i = 0; i < sample; i++) {
+      if (slots[i * 2 + 1] != 0 && age(slots[i * 2 + 1]) == age) {
+        used++;
+      }
+    }
+    return sample == 0 ? 0 : used * 1000 / sample;
+  }
+
+  private int bucket(long key) {
+    return (int) ((key ^ (key >>> 32)) & bucketMask) * BUCKET * 2;
+  }
+
+  public static int move(long data) {
+    return (int) (data & ((1L << MOVE_BITS) - 1));
+  }
+
+  public static int bound(long data) {
+    return (int) (data >>> BOUND_SHIFT) & 3;
+  }
+
+  public static int depth(long data) {
+    return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+  }
+
+  static int age(long data) {
+    return (int) (data >>> AGE_SHIFT) & 0xFF;
+  }
+
+  public static int score(long data) {
+    return (int) (data >> SCORE_SHIFT);
+  }
+}
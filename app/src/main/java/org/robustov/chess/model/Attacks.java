@@ -0,0 +1,261 @@
+package org.robustov.chess.model;
+
+import org.robustov.chess.pieces.Pawn;
+
+import java.util.Arrays;
+
+import static org.robustov.chess.model.Bitboard.SQUARES;
+import static org.robustov.chess.model.Bitboard.WORDS;
+
+/**
+ * Attack tables computed once at class load. Every entry only contains squares that are
+ * on the board and legal, so callers only have to mask them by occupancy.
+ *
+ * <p>Sliding pieces use one ray per square and direction, cut off at the first illegal
+ * square. The squares a slider attacks along a ray are the ray up to and including the
+ * first occupied square (the lowest set bit for directions that increase the square
+ * index, the highest for the others).
+ */
+public final class Attacks {
+  private static final int COLORS = Color.values().length;
+
+  public static final int EAST = 0;
+  public static final int NORTH = 1;
+  public static final int WEST = 2;
+  public static final int SOUTH = 3;
+  public static final int NORTH_EAST = 4;
+  public static final int NORTH_WEST = 5;
+  public static final int SOUTH_WEST = 6;
+  public static final int SOUTH_EAST = 7;
+  public static final int DIRECTIONS = 8;
+
+  // Rooks use directions 0-3, bishops 4-7, queens all of them.
+  private static final int[][] DIRECTION_OFFSETS = {
+      { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 }, { 1, 1 }, { -1, 1 }, { -1, -1 }, { 1, -1 }
+  };
+
+  private static final int[][] KNIGHT_OFFSETS = {
+      { 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 },
+      { 1, 2 }, { 1, -2 }, { -1, 2 }, { -1, -2 }
+  };
+
+  private static final int[][] KING_OFFSETS = {
+      { -1, -1 }, { -1, 0 }, { -1, 1 }, { 0, -1 }, { 0, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 }
+  };
+
+  private static final long[] KNIGHT = new long[SQUARES * WORDS];
+  private static final long[] KING = new long[SQUARES * WORDS];
+  private static final long[] PAWN_CAPTURES = new long[COLORS * SQUARES * WORDS];
+  private static final long[] PAWN_ATTACKERS = new long[COLORS * SQUARES * WORDS];
+  private static final int[] PAWN_PUSH = new int[COLORS * SQUARES];
+  private static final int[] PAWN_DOUBLE_PUSH = new int[COLORS * SQUARES];
+  private static final long[] RAYS = new long[DIRECTIONS * SQUARES * WORDS];
+  private static final byte[] SQUARE_DIRECTION = new byte[SQUARES * SQUARES];
+
+  static {
+    Arrays.fill(SQUARE_DIRECTION, (byte) -1);
+    for (int square = 0; square < SQUARES; square++) {
+      if (!Bitboard.isLegal(square)) {
+        for (int color = 0; color < COLORS; color++) {
+          PAWN_PUSH[color * SQUARES + square] = -1;
+          PAWN_DOUBLE_PUSH[color * SQUARES + square] = -1;
+        }
+        continue;
+      }
+      fillLeaper(KNIGHT, square, KNIGHT_OFFSETS);
+      fillLeaper(KING, square, KING_OFFSETS);
+      for (Color color : Color.values()) {
+        fillPawn(color, square);
+      }
+      for (int direction = 0; direction < DIRECTIONS; direction++) {
+        fillRay(direction, square);
+      }
+    }
+  }
+
+  private Attacks() {
+  }
+
+  private static void fillLeaper(long[] table, int square, int[][] offsets) {
+    for (int[] offset : offsets) {
+      int target = target(square, offset[0], offset[1]);
+      if (target >= 0) {
+        Bitboard.set(table, square * WORDS, target);
+      }
+    }
+  }
+
+  private static void fillPawn(Color color, int square) {
+    int[] direction = Pawn.getMovementDirection(color);
+    int slot = color.ordinal() * SQUARES + square;
+
+    int push = target(square, direction[0], direction[1]);
+    PAWN_PUSH[slot] = push;
+    PAWN_DOUBLE_PUSH[slot] = push < 0 ? -1 : target(square, 2 * direction[0], 2 * direction[1]);
+
+    int[][] captures = Pawn.movesVertically(color)
+        ? new int[][] { { 1, direction[1] }, { -1, direction[1] } }
+        : new int[][] { { direction[0], 1 }, { direction[0], -1 } };
+    for (int[] capture : captures) {
+      int target = target(square, capture[0], capture[1]);
+      if (target >= 0) {
+        Bitboard.set(PAWN_CAPTURES, slot * WORDS, target);
+        Bitboard.set(PAWN_ATTACKERS, (color.ordinal() * SQUARES + target) * WORDS, square);
+      }
+    }
+  }
+
+  private static void fillRay(int direction, int square) {
+    int[] offset = DIRECTION_OFFSETS[direction];
+    int target = target(square, offset[0], offset[1]);
+    while (target >= 0) {
+      Bitboard.set(RAYS, (direction * SQUARES + square) * WORDS, target);
+      SQUARE_DIRECTION[square * SQUARES + target] = (byte) direction;
+      target = target(target, offset[0], offset[1]);
+    }
+  }
+
+  /** Square reached from {@code square} by the given step, or -1 if it is off the board or illegal. */
+  private static int target(int square, int fileDelta, int rankDelta) {
+    int file = (square & 15) + fileDelta;
+    int rank = (square >>> 4) + rankDelta;
+    if (!Bitboard.isOnBoard(file, rank)) {
+      return -1;
+    }
+    int target = (rank << 4) | file;
+    return Bitboard.isLegal(target) ? target : -1;
+  }
+
+  public static long knight(int square, int word) {
+    return KNIGHT[square * WORDS + word];
+  }
+
+  public static long king(int square, int word) {
+    return KING[square * WORDS + word];
+  }
+
+  /** Squares a pawn of {@code color} standing on {@code square} captures on. */
+  public static long pawnCaptures(Color color, int square, int word) {
+    return PAWN_CAPTURES[(color.ordinal() * SQUARES + square) * WORDS + word];
+  }
+
+  /** Squares from which a pawn of {@code color} captures on {@code square}. */
+  public static long pawnAttackers(Color color, int square, int word) {
+    return PAWN_ATTACKERS[(color.ordinal() * SQUARES + square) * WORDS + word];
+  }
+
+  /** Single-step target of a pawn of {@code color}, or -1 if it cannot move forward. */
+  public static int pawnPush(Color color, int square) {
+    return PAWN_PUSH[color.ordinal() * SQUARES + square];
+  }
+
+  /** Double-step target of a pawn of {@code color}, or -1 if either step is impossible. */
+  public static int pawnDoublePush(Color color, int square) {
+    return PAWN_DOUBLE_PUSH[color.ordinal() * SQUARES + square];
+  }
+
+  public static boolean isIncreasing(int direction) {
+    return direction == EAST || direction == NORTH || direction == NORTH_EAST || direction == NORTH_WEST;
+  }
+
+  public static boolean isDiagonal(int direction) {
+    return direction >= NORTH_EAST;
+  }
+
+  public static long ray(int direction, int square, int word) {
+    return RAYS[(direction * SQUARES + square) * WORDS + word];
+  }
+
+  /**
+   * Direction in which {@code to} lies on a legal ray from {@code from}, or -1 if no
+   * slider could ever move between the two squares.
+   */
+  public static int direction(int from, int to) {
+    return SQUARE_DIRECTION[from * SQUARES + to];
+  }
+
+  /** First occupied square on the ray, or -1 if the ray is empty up to the board edge. */
+  public static int firstBlocker(int direction, int square, long o0, long o1, long o2, long o3) {
+    int offset = (direction * SQUARES + square) * WORDS;
+    long r0 = RAYS[offset] & o0;
+    long r1 = RAYS[offset + 1] & o1;
+    long r2 = RAYS[offset + 2] & o2;
+    long r3 = RAYS[offset + 3] & o3;
+    if (isIncreasing(direction)) {
+      if (r0 != 0) {
+        return Long.numberOfTrailingZeros(r0);
+      } else if (r1 != 0) {
+        return 64 | Long.numberOfTrailingZeros(r1);
+      } else if (r2 != 0) {
+        return 128 | Long.numberOfTrailingZeros(r2);
+      } else if (r3 != 0) {
+        return 192 | Long.numberOfTrailingZeros(r3);
+      }
+    } else {
+      if (r3 != 0) {
+        return 255 - Long.numberOfLeadingZeros(r3);
+      } else if (r2 != 0) {
+        return 191 - Long.numberOfLeadingZeros(r2);
+      } else if (r1 != 0) {
+        return 127 - Long.numberOfLeadingZeros(r1);
+      } else if (r0 != 0) {
+        return 63 - Long.numberOfLeadingZeros(r0);
+      }
+    }
+    return -1;
+  }
+
+  public static int firstBlocker(int direction, int square, PieceBitboards bitboards) {
+    return firstBlocker(direction, square, bitboards.occupied(0), bitboards.occupied(1),
+        bitboards.occupied(2), bitboards.occupied(3));
+  }
+
+  /** Squares attacked along the ray when its first occupied square is {@code blocker} (or -1). */
+  public static long rayAttacks(int direction, int square, int blocker, int word) {
+    long attacks = RAYS[(direction * SQUARES + square) * WORDS + word];
+    return blocker < 0 ? attacks : attacks & ~RAYS[(direction * SQUARES + blocker) * WORDS + word];
+  }
+
+  /**
+   * Writes the squares attacked by a slider on {@code square} along directions
+   * {@code firstDirection..lastDirection} into {@code dst} at {@code offset}.
+   */
+  public static void slidingAttacks(int square, int firstDirection, int lastDirection,
+      long o0, long o1, long o2, long o3, long[] dst, int offset) {
+    long a0 = 0, a1 = 0, a2 = 0, a3 = 0;
+    for (int direction = firstDirection; direction <= lastDirection; direction++) {
+      int blocker = firstBlocker(direction, square, o0, o1, o2, o3);
+      a0 |= rayAttacks(direction, square, blocker, 0);
+      a1 |= rayAttacks(direction, square, blocker, 1);
+      a2 |= rayAttacks(direction, square, blocker, 2);
+      a3 |= rayAttacks(direction, square, blocker, 3);
+    }
+    dst[offset] = a0;
+    dst[offset + 1] = a1;
+    dst[offset + 2] = a2;
+    dst[offset + 3] = a3;
+  }
+
+  /** Whether a slider on {@code from} moving along its legal ray reaches {@code to} unobstructed. */
+  public static boolean isSlidingAttack(int from, int to, boolean orthogonal, boolean diagonal,
+      PieceBitboards bitboards) {
+    int direction = direction(from, to);
+    if (direction < 0 || (isDiagonal(direction) ? !diagonal : !orthogonal)) {
+      return false;
+    }
+    int blocker = firstBlocker(direction, from, bitboards);
+    return blocker < 0 || (isIncreasing(direction) ? to <= blocker : to >= blocker);
+  }
+
+  public static boolean isKnightAttack(int from, int to) {
+    return (KNIGHT[from * WORDS + (to >>> 6)] & (1L << to)) != 0;
+  }
+
+  public static boolean isKingAttack(int from, int to) {
+    return (KING[from * WORDS + (to >>> 6)] & (1L << to)) != 0;
+  }
+
+  public static boolean isPawnCapture(Color color, int from, int to) {
+    return (PAWN_CAPTURES[(color.ordinal() * SQUARES + from) * WORDS + (to >>> 6)] & (1L << to)) != 0;
+  }
+}
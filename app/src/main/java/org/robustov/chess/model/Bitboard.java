@@ -0,0 +1,95 @@
+package org.robustov.chess.model;
+
+/**
+ * Static helpers for 256-bit bitboards of the 16x16 board. A bitboard is stored as
+ * {@link #WORDS} consecutive longs (in a plain array, at an arbitrary offset), square
+ * {@code index = (rank - 1) * 16 + (file - 'a')} lives in word {@code index >>> 6},
+ * bit {@code index & 63}.
+ */
+public final class Bitboard {
+  public static final int SQUARES = 256;
+  public static final int WORDS = 4;
+
+  // Ranks 1-2 and 15-16 only have the fortress corners (files a-d, m-p), ranks 3-4 and
+  // 13-14 are fully open, ranks 5-12 lose files a, b, o and p.
+  private static final long LEGAL_0 = 0xFFFF_FFFF_F00F_F00FL;
+  private static final long LEGAL_1 = 0x3FFC_3FFC_3FFC_3FFCL;
+  private static final long LEGAL_2 = 0x3FFC_3FFC_3FFC_3FFCL;
+  private static final long LEGAL_3 = 0xF00F_F00F_FFFF_FFFFL;
+
+  private Bitboard() {
+  }
+
+  public static int index(char file, int rank) {
+    return ((rank - 1) << 4) | (file - 'a');
+  }
+
+  public static char fileOf(int square) {
+    return (char) ('a' + (square & 15));
+  }
+
+  public static int rankOf(int square) {
+    return (square >>> 4) + 1;
+  }
+
+  public static boolean isOnBoard(int file, int rank) {
+    return file >= 0 && file < 16 && rank >= 0 && rank < 16;
+  }
+
+  public static boolean isLegal(int square) {
+    return (legalWord(square >>> 6) & (1L << square)) != 0;
+  }
+
+  public static long legalWord(int word) {
+    return switch (word) {
+      case 0 -> LEGAL_0;
+      case 1 -> LEGAL_1;
+      case 2 -> LEGAL_2;
+      case 3 -> LEGAL_3;
+      default -> throw new IllegalArgumentException("Invalid bitboard word: " + word);
+    };
+  }
+
+  public static boolean test(long[] bb, int offset, int square) {
+    return (bb[offset + (square >>> 6)] & (1L << square)) != 0;
+  }
+
+  public static void set(long[] bb, int offset, int square) {
+    bb[offset + (square >>> 6)] |= 1L << square;
+  }
+
+  public static void clear(long[] bb, int offset, int square) {
+    bb[offset + (square >>> 6)] &= ~(1L << square);
+  }
+
+  public static boolean isEmpty(long[] bb, int offset) {
+    return (bb[offset] | bb[offset + 1] | bb[offset + 2] | bb[offset + 3]) == 0;
+  }
+
+  public static int popCount(long[] bb, int offset) {
+    return Long.bitCount(bb[offset]) + Long.bitCount(bb[offset + 1])
+        + Long.bitCount(bb[offset + 2]) + Long.bitCount(bb[offset + 3]);
+  }
+
+  /** Lowest square in the set, or -1 when it is empty. */
+  public static int first(long[] bb, int offset) {
+    for (int w = 0; w < WORDS; w++) {
+      long bits = bb[offset + w];
+      if (bits != 0) {
+        return (w << 6) | Long.numberOfTrailingZeros(bits);
+      }
+    }
+    return -1;
+  }
+
+  /** Highest square in the set, or -1 when it is empty. */
+  public static int last(long[] bb, int offset) {
+    for (int w = WORDS - 1; w >= 0; w--) {
+      long bits = bb[offset + w];
+      if (bits != 0) {
+        return (w << 6) | (63 - Long.numberOfLeadingZeros(bits));
+      }
+    }
+    return -1;
+  }
+}
@@ -1,5 +1,11 @@
 package org.robustov.chess.model;
 
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -16,37 +22,86 @@ import org.robustov.chess.pieces.Pawn;
 import org.robustov.chess.pieces.Knight;
 
 public class Board {
-  private final Map<Position, Square> squares;
+  /** File name ending of positions saved with {@link #toBytes()}; any other file is read as JSON. */
+  public static final String BINARY_EXTENSION = ".fcpos";
+
+  private static final int BINARY_HEADER = 1 + 192 / 8;
+  private static final int BINARY_PIECE_BITS = 6;
+
+  private final Square[] squares;
+  private final PieceBitboards bitboards;
   private final Map<Color, King> kings;
+  private final PieceList pieceList;
+  private final MoveGenerator generator;
+  private final StaticExchange exchange;
+  private final MoveList scratchMoves;
+  private Undo[] history;
+  private int historySize;
   private Color currentPlayer;
+  private int eliminated;
+  private long zobristKey;
+  private final int[] scores = new int[Color.values().length];
+  private GameStatus status;
 
   public Board() {
-    squares = new HashMap<>();
+    squares = new Square[Bitboard.SQUARES];
+    bitboards = new PieceBitboards();
     kings = new HashMap<>();
-    currentPlayer = Color.YELLOW;
+    pieceList = new PieceList();
+    generator = new MoveGenerator(this);
+    exchange = new StaticExchange(this);
+    scratchMoves = new MoveList();
+    history = new Undo[64];
     initializeFortressBoard();
+    setCurrentPlayer(Color.YELLOW);
+    updateEliminated();
   }
 
   private void initializeFortressBoard() {
-    for (char file = 'a'; file <= 'p'; file++) {
-      for (int rank = 1; rank <= 16; rank++) {
-        Position position = new Position(file, rank);
-        boolean isLegal = isLegalSquare(rank, file);
-        squares.put(position, new Square(position, isLegal));
-      }
+    for (int index = 0; index < Bitboard.SQUARES; index++) {
+      squares[index] = new Square(Position.of(index), Bitboard.isLegal(index));
     }
   }
 
-  private boolean isLegalSquare(int rank, char file) {
-    int fileIndex = file - 'a' + 1;
+  private void putPiece(int index, Piece piece) {
+    squares[index].setPiece(piece);
+    bitboards.add(index, piece.getColor(), piece.getType());
+    pieceList.add(index, piece.getColor(), piece.getType());
+    zobristKey ^= Zobrist.of(piece, index);
+    scores[piece.getColor().ordinal()] += Evaluation.score(piece.getColor(), piece.getType(), index);
+    status = null;
+  }
 
-    if (rank <= 2 || rank >= 15) {
-      return fileIndex <= 4 || fileIndex >= 13;
-    } else if (rank <= 4 || rank >= 13) {
-      return true;
-    } else {
-      return fileIndex > 2 && fileIndex < 15;
+  private Piece takePiece(int index) {
+    Piece removed = squares[index].peekPiece();
+    if (removed != null) {
+      squares[index].clearPiece();
+      bitboards.remove(index, removed.getColor(), removed.getType());
+      pieceList.remove(index, removed.getColor(), removed.getType());
+      zobristKey ^= Zobrist.of(removed, index);
+      scores[removed.getColor().ordinal()] -= Evaluation.score(removed.getColor(), removed.getType(), index);
+      status = null;
     }
+    return removed;
+  }
+
+  /** Independent copy of the position without the move history, e.g. for a search on another thread. */
+  public Board copy() {
+    Board copy = new Board();
+    for (int index = 0; index < squares.length; index++) {
+      Piece piece = squares[index].peekPiece();
+      if (piece != null) {
+        Piece clone = createPiece(piece.getType(), piece.getColor());
+        clone.setHasMoved(piece.hasMoved());
+        copy.putPiece(index, clone);
+        if (clone instanceof King king) {
+          copy.kings.put(king.getColor(), king);
+        }
+      }
+    }
+    copy.setCurrentPlayer(currentPlayer);
+    copy.setEliminated(eliminated);
+    return copy;
   }
 
   public void placePiece(Piece piece, Position position) {
@@ -58,11 +113,13 @@ public class Board {
       throw new IllegalArgumentException("Позиция " + position + " уже занята");
     }
 
-    square.setPiece(piece);
+    putPiece(position.index(), piece);
+    historySize = 0;
 
     if (piece instanceof King king) {
       kings.put(piece.getColor(), king);
     }
+    updateEliminated();
   }
 
   public Optional<Piece> removePiece(Position position) {
@@ -70,10 +127,12 @@ public class Board {
     if (!square.isLegal()) {
       throw new IllegalArgumentException("Невозможно удалить фигуру с нелегальной клетки: " + position);
     }
-    Optional<Piece> removed = square.removePiece();
+    Optional<Piece> removed = Optional.ofNullable(takePiece(position.index()));
+    historySize = 0;
     if (removed.isPresent() && removed.get() instanceof King) {
       kings.remove(removed.get().getColor());
     }
+    updateEliminated();
     return removed;
   }
 
@@ -95,24 +154,79 @@ public class Board {
       throw new IllegalStateException("Не ход " + currentPlayer + ". Текущий ход: " + currentPlayer);
     }
 
-    Set<Position> validMoves = piece.getValidMoves(source, this);
-    if (!validMoves.contains(target)) {
+    if (!piece.isValidMove(source, target, this)) {
       throw new IllegalArgumentException("Фигура не может ходить в цель: " + target);
     }
 
-    if (wouldLeaveKingInCheck(piece.getColor(), source, target)) {
+    generator.prepare(piece.getColor());
+    if (!generator.isLegal(source.index(), target.index())) {
       throw new IllegalArgumentException("Нелегальный ход: оставляет короля под шахом");
     }
 
-    if (targetSquare.hasPiece()) {
+    applyMove(source.index(), target.index(), true);
+  }
+
+  /**
+   * Plays a move without validating it, eliminating mated players and passing the turn
+   * exactly like {@link #movePiece}. Everything it changes is recorded so that
+   * {@link #unmakeMove()} restores the previous position.
+   */
+  public void makeMove(Position source, Position target) {
+    int from = source.index();
+    if (!bitboards.isOccupied(from)) {
+      throw new IllegalArgumentException("Нет фигуры в исходной позиции: " + source);
+    }
+    applyMove(from, target.index(), false);
+  }
+
+  /** Same as {@link #makeMove(Position, Position)} for a packed {@link Move}. */
+  public void makeMove(int move) {
+    int from = Move.from(move);
+    if (!bitboards.isOccupied(from)) {
+      throw new IllegalArgumentException("Нет фигуры в исходной позиции: " + Position.of(from));
     }
+    applyMove(from, Move.to(move), false);
+  }
 
-    sourceSquare.removePiece();
-    targetSquare.setPiece(piece);
-    piece.markAsMoved();
+  public void unmakeMove() {
+    if (historySize == 0) {
+      throw new IllegalStateException("Нет ходов для отмены");
+    }
+    Undo undo = history[--historySize];
+    for (int i = undo.eliminatedCount - 1; i >= 0; i--) {
+      Piece piece = undo.eliminatedPieces[i];
+      putPiece(undo.eliminatedSquares[i], piece);
+      if (piece instanceof King king) {
+        kings.put(piece.getColor(), king);
+      }
+    }
+    undoMove(undo);
+    setEliminated(undo.previousEliminated);
+    setCurrentPlayer(undo.previousPlayer);
+  }
+
+  public boolean canUnmakeMove() {
+    return historySize > 0;
+  }
+
+  private void applyMove(int from, int to, boolean report) {
+    if (historySize == history.length) {
+      history = Arrays.copyOf(history, historySize * 2);
+    }
+    Undo undo = history[historySize];
+    if (undo == null) {
+      undo = new Undo();
+      history[historySize] = undo;
+    }
+    historySize++;
+
+    undo.previousPlayer = currentPlayer;
+    undo.previousEliminated = eliminated;
+    undo.eliminatedCount = 0;
+    doMove(undo, from, to);
 
     try {
-      checkAndEliminateMatedPlayers();
+      checkAndEliminateMatedPlayers(undo, report);
     } catch (RuntimeException ex) {
       System.err.println("Ошибка при проверке мата: " + ex.getMessage());
       ex.printStackTrace();
@@ -121,52 +235,209 @@ public class Board {
     }
   }
 
+  private void doMove(Undo undo, int from, int to) {
+    Piece moving = takePiece(from);
+    Piece captured = takePiece(to);
+    putPiece(to, moving);
+
+    undo.from = from;
+    undo.to = to;
+    undo.movedBefore = moving.hasMoved();
+    undo.captured = captured;
+    undo.rookFrom = -1;
+
+    if (captured instanceof King) {
+      kings.remove(captured.getColor());
+    }
+
+    // A king moving two files is castling; the rook jumps to the square the king passed.
+    if (moving instanceof King && Math.abs(to - from) == 2) {
+      int rookFrom = to > from ? (from | 15) : (from & ~15);
+      Piece rook = squares[rookFrom].peekPiece();
+      if (rook instanceof Rook) {
+        undo.rookFrom = rookFrom;
+        undo.rookTo = (from + to) / 2;
+        undo.rookMovedBefore = rook.hasMoved();
+        takePiece(rookFrom);
+        putPiece(undo.rookTo, rook);
+        setHasMoved(undo.rookTo, rook, true);
+      }
+    }
+
+    setHasMoved(to, moving, true);
+  }
+
+  private void undoMove(Undo undo) {
+    if (undo.rookFrom >= 0) {
+      Piece rook = takePiece(undo.rookTo);
+      putPiece(undo.rookFrom, rook);
+      setHasMoved(undo.rookFrom, rook, undo.rookMovedBefore);
+    }
+
+    Piece moving = takePiece(undo.to);
+    putPiece(undo.from, moving);
+    setHasMoved(undo.from, moving, undo.movedBefore);
+
+    if (undo.captured != null) {
+      putPiece(undo.to, undo.captured);
+      if (undo.captured instanceof King king) {
+        kings.put(king.getColor(), king);
+      }
+    }
+  }
+
+  /** Changes the moved flag of the piece standing on {@code index}, keeping the hash key in sync. */
+  private void setHasMoved(int index, Piece piece, boolean moved) {
+    if (piece.hasMoved() != moved) {
+      if (Zobrist.tracksMoved(piece.getType())) {
+        zobristKey ^= Zobrist.unmoved(index);
+      }
+      piece.setHasMoved(moved);
+    }
+  }
+
+  private void setCurrentPlayer(Color player) {
+    if (currentPlayer != null) {
+      zobristKey ^= Zobrist.sideToMove(currentPlayer);
+    }
+    currentPlayer = player;
+    if (player != null) {
+      zobristKey ^= Zobrist.sideToMove(player);
+    }
+  }
+
+  private void setEliminated(int mask) {
+    for (Color color : Color.values()) {
+      if (((eliminated ^ mask) & (1 << color.ordinal())) != 0) {
+        zobristKey ^= Zobrist.eliminated(color);
+      }
+    }
+    eliminated = mask;
+  }
+
+  /** After editing the board, every player without pieces counts as eliminated. */
+  private void updateEliminated() {
+    int mask = 0;
+    for (Color color : Color.values()) {
+      if (!isPlayerActive(color)) {
+        mask |= 1 << color.ordinal();
+      }
+    }
+    setEliminated(mask);
+  }
+
   private void advanceTurn() {
+    Color player = currentPlayer;
     for (int i = 0; i < Color.values().length; i++) {
-      currentPlayer = currentPlayer.getNextPlayer();
-      if (isPlayerActive(currentPlayer)) {
-        return;
+      player = player.getNextPlayer();
+      if (isPlayerActive(player)) {
+        break;
       }
     }
+    setCurrentPlayer(player);
   }
 
   public boolean isPlayerActive(Color color) {
     return hasPieces(color) || kings.containsKey(color);
   }
 
-  private boolean hasPieces(Color color) {
-    for (Square square : squares.values()) {
-      if (!square.isLegal())
-        continue;
-      Optional<Piece> piece = square.getPiece();
-      if (piece.isPresent() && piece.get().getColor() == color) {
-        return true;
+  /** Whether {@code color} has been knocked out of the game (or has no pieces on an edited board). */
+  public boolean isEliminated(Color color) {
+    return (eliminated & (1 << color.ordinal())) != 0;
+  }
+
+  /**
+   * 64-bit hash of the game state: pieces, the moved flags of kings, rooks and pawns,
+   * the side to move and the eliminated players. Updated incrementally, so reading it is
+   * free; equal positions reached by different move orders get equal keys.
+   */
+  public long getZobristKey() {
+    return zobristKey;
+  }
+
+  /**
+   * Material plus piece-square score of {@code color} in centipawns, see {@link Evaluation}.
+   * Kept up to date as pieces move, so reading it is free.
+   */
+  public int getScore(Color color) {
+    return scores[color.ordinal()];
+  }
+
+  /** The score computed from scratch; always equal to {@link #getScore(Color)}. */
+  int computeScore(Color color) {
+    int score = 0;
+    for (PieceType type : PieceType.values()) {
+      for (int i = 0; i < pieceList.count(color, type); i++) {
+        score += Evaluation.score(color, type, pieceList.square(color, type, i));
       }
     }
-    return false;
+    return score;
+  }
+
+  /** The hash key computed from scratch; always equal to {@link #getZobristKey()}. */
+  long computeZobristKey() {
+    long key = currentPlayer == null ? 0 : Zobrist.sideToMove(currentPlayer);
+    for (int index = 0; index < squares.length; index++) {
+      Piece piece = squares[index].peekPiece();
+      if (piece != null) {
+        key ^= Zobrist.of(piece, index);
+      }
+    }
+    for (Color color : Color.values()) {
+      if (isEliminated(color)) {
+        key ^= Zobrist.eliminated(color);
+      }
+    }
+    return key;
+  }
+
+  private boolean hasPieces(Color color) {
+    return bitboards.hasPieces(color);
   }
 
   public boolean hasLegalMoves(Color color) {
-    for (Map.Entry<Position, Square> entry : squares.entrySet()) {
-      Position from = entry.getKey();
-      Square square = entry.getValue();
-      if (!square.isLegal())
-        continue;
-      Optional<Piece> pOpt = square.getPiece();
-      if (pOpt.isEmpty())
-        continue;
-      Piece piece = pOpt.get();
-      if (piece.getColor() != color)
-        continue;
+    return generator.hasLegalMove(color, scratchMoves);
+  }
 
-      Set<Position> moves = piece.getValidMoves(from, this);
-      for (Position to : moves) {
-        if (!wouldLeaveKingInCheck(color, from, to)) {
-          return true;
-        }
-      }
+  /**
+   * Appends all legal moves of {@code color} to {@code moves} as packed {@link Move}s.
+   * Checks and pins are computed once for the whole position and nothing is allocated.
+   */
+  public void generateLegalMoves(Color color, MoveList moves) {
+    generator.generate(color, moves);
+  }
+
+  /** All legal moves of {@code color}, keyed by the square of the moving piece. */
+  public Map<Position, Set<Position>> legalMoves(Color color) {
+    MoveList moves = new MoveList();
+    generator.generate(color, moves);
+    Map<Position, Set<Position>> result = new HashMap<>();
+    for (int i = 0; i < moves.size(); i++) {
+      int move = moves.get(i);
+      result.computeIfAbsent(Position.of(Move.from(move)), from -> new HashSet<>())
+          .add(Position.of(Move.to(move)));
+    }
+    return result;
+  }
+
+  /** Legal targets of the piece on {@code position}, or an empty set if the square is empty. */
+  public Set<Position> getLegalMoves(Position position) {
+    Set<Position> targets = new HashSet<>();
+    int index = position.index();
+    if (!bitboards.isOccupied(index)) {
+      return targets;
     }
-    return false;
+    MoveList moves = new MoveList(32);
+    generator.prepare(squares[index].peekPiece().getColor());
+    generator.generate(index, moves);
+    for (int i = 0; i < moves.size(); i++) {
+      targets.add(Position.of(Move.to(moves.get(i))));
+    }
+    return targets;
+  }
+
+  Piece pieceAt(int index) {
+    return squares[index].peekPiece();
   }
 
   public Color getCurrentPlayer() {
@@ -174,166 +445,248 @@ public class Board {
   }
 
   public Square getSquare(Position position) {
-    Square square = squares.get(position);
-    if (square == null) {
+    if (position == null) {
       throw new IllegalArgumentException("Неверная позиция: " + position);
     }
-    return square;
+    return squares[position.index()];
   }
 
-  public boolean isLegalPosition(Position position) {
-    return getSquare(position).isLegal();
+  public Square getSquare(int index) {
+    if (index < 0 || index >= squares.length) {
+      throw new IllegalArgumentException("Неверная позиция: " + index);
+    }
+    return squares[index];
   }
 
-  public boolean hasPiece(Position position) {
-    Square square = getSquare(position);
-    return square.isLegal() && square.hasPiece();
+  /**
+   * Static exchange evaluation of moving the piece on {@code from} to {@code to}: the
+   * material it wins (negative if it loses) once all captures and recaptures on
+   * {@code to} are played out, every other color counting as the opponent.
+   */
+  public int see(int from, int to) {
+    return exchange.evaluate(from, to);
   }
 
-  public Optional<Piece> getPiece(Position position) {
-    Square square = getSquare(position);
-    return square.isLegal() ? square.getPiece() : Optional.empty();
+  public int see(Position from, Position to) {
+    return see(from.index(), to.index());
   }
 
-  public boolean isKingInCheck(Color color) {
-    King king = kings.get(color);
-    if (king == null) {
-      return false;
+  /**
+   * Exact result for the side to move from {@code tablebase} once only two players are
+   * left, one with a king and a queen or rook, the other with a bare king. Empty for
+   * other positions, for materials without a table and while castling is still possible.
+   */
+  public Optional<Tablebase.Result> probeTablebase(Tablebase tablebase) {
+    Color strong = null;
+    Color weak = null;
+    for (Color color : Color.values()) {
+      int count = pieceList.count(color);
+      if (count == 0) {
+        continue;
+      }
+      if (pieceList.count(color, PieceType.KING) != 1) {
+        return Optional.empty();
+      }
+      if (count == 1 && weak == null) {
+        weak = color;
+      } else if (count == 2 && strong == null) {
+        strong = color;
+      } else {
+        return Optional.empty();
+      }
     }
-
-    Position kingPosition = findKingPosition(color);
-    if (kingPosition == null || !isLegalPosition(kingPosition)) {
-      return false;
+    if (strong == null || weak == null || (currentPlayer != strong && currentPlayer != weak)) {
+      return Optional.empty();
     }
-
-    for (Position position : squares.keySet()) {
-      if (!isLegalPosition(position))
+    int king = getKingSquare(strong);
+    for (Tablebase.Material material : Tablebase.Material.values()) {
+      int piece = pieceList.first(strong, material.getPiece());
+      if (piece < 0) {
         continue;
-
-      Optional<Piece> pieceOptional = getPiece(position);
-      if (pieceOptional.isPresent() && pieceOptional.get().getColor() != color) {
-        Piece piece = pieceOptional.get();
-        try {
-          if (piece.isValidMove(position, kingPosition, this)) {
-            return true;
-          }
-        } catch (RuntimeException ex) {
-          System.err.println("Ошибка при проверке атаки с " + position + " : " + ex.getMessage());
-        }
       }
+      if (material.getPiece() == PieceType.ROOK
+          && !squares[king].peekPiece().hasMoved() && !squares[piece].peekPiece().hasMoved()) {
+        return Optional.empty();
+      }
+      return tablebase.probe(material, currentPlayer == strong, king, piece, getKingSquare(weak));
     }
-    return false;
+    return Optional.empty();
   }
 
-  private Position findKingPosition(Color color) {
-    for (Map.Entry<Position, Square> entry : squares.entrySet()) {
-      if (!entry.getValue().isLegal())
-        continue;
+  public PieceBitboards getBitboards() {
+    return bitboards;
+  }
 
-      Optional<Piece> piece = entry.getValue().getPiece();
-      if (piece.isPresent() && piece.get() instanceof King && piece.get().getColor() == color) {
-        return entry.getKey();
-      }
-    }
-    return null;
+  public PieceList getPieceList() {
+    return pieceList;
   }
 
-  public boolean isCheckmate(Color color) {
+  public boolean isLegalPosition(Position position) {
+    return Bitboard.isLegal(position.index());
+  }
+
+  public boolean hasPiece(Position position) {
+    return bitboards.isOccupied(position.index());
+  }
+
+  public boolean hasPiece(int index) {
+    return bitboards.isOccupied(index);
+  }
+
+  public Optional<Piece> getPiece(Position position) {
+    return getPiece(position.index());
+  }
+
+  public Optional<Piece> getPiece(int index) {
+    return Optional.ofNullable(squares[index].peekPiece());
+  }
+
+  public boolean isKingInCheck(Color color) {
     if (!kings.containsKey(color)) {
       return false;
     }
 
-    if (!isKingInCheck(color)) {
-      return false;
-    }
+    int kingSquare = getKingSquare(color);
+    return kingSquare >= 0 && isSquareAttacked(kingSquare, color);
+  }
 
-    return !hasLegalMoves(color);
+  /** Square of the king of {@code color}, or -1 if it has none on the board. */
+  public int getKingSquare(Color color) {
+    return pieceList.first(color, PieceType.KING);
   }
 
-  private boolean wouldLeaveKingInCheck(Color color, Position from, Position to) {
-    Square src = getSquare(from);
-    Square dst = getSquare(to);
+  /** Whether any piece of a color other than {@code defender} attacks {@code square}. */
+  public boolean isSquareAttacked(int square, Color defender) {
+    return isSquareAttacked(square, defender, bitboards.occupied(0), bitboards.occupied(1),
+        bitboards.occupied(2), bitboards.occupied(3));
+  }
 
-    Piece moving = src.getPiece().orElseThrow();
-    Optional<Piece> captured = dst.getPiece();
+  /**
+   * Looks outward from {@code square}: knight and king offsets, the squares each enemy
+   * pawn would capture from, and the first piece on every ray for the given occupancy.
+   */
+  boolean isSquareAttacked(int square, Color defender, long o0, long o1, long o2, long o3) {
+    for (int word = 0; word < Bitboard.WORDS; word++) {
+      long enemies = bitboards.occupied(word) & ~bitboards.color(defender, word);
+      if ((Attacks.knight(square, word) & enemies & bitboards.type(PieceType.KNIGHT, word)) != 0
+          || (Attacks.king(square, word) & enemies & bitboards.type(PieceType.KING, word)) != 0) {
+        return true;
+      }
+    }
 
-    src.removePiece();
-    if (dst.hasPiece()) {
-      dst.removePiece();
+    for (Color attacker : Color.values()) {
+      if (attacker == defender) {
+        continue;
+      }
+      for (int word = 0; word < Bitboard.WORDS; word++) {
+        if ((Attacks.pawnAttackers(attacker, square, word) & bitboards.pieces(attacker, PieceType.PAWN, word)) != 0) {
+          return true;
+        }
+      }
     }
-    dst.setPiece(moving);
 
-    boolean kingStillInCheck;
-    try {
-      kingStillInCheck = isKingInCheck(color);
-    } finally {
-      dst.removePiece();
-      src.setPiece(moving);
-      if (captured.isPresent()) {
-        dst.setPiece(captured.get());
+    for (int direction = 0; direction < Attacks.DIRECTIONS; direction++) {
+      int blocker = Attacks.firstBlocker(direction, square, o0, o1, o2, o3);
+      if (blocker < 0 || !bitboards.isOccupied(blocker) || bitboards.isOccupiedBy(blocker, defender)) {
+        continue;
+      }
+      PieceType type = squares[blocker].peekPiece().getType();
+      if (type == PieceType.QUEEN
+          || type == (Attacks.isDiagonal(direction) ? PieceType.BISHOP : PieceType.ROOK)) {
+        return true;
       }
     }
+    return false;
+  }
 
-    return kingStillInCheck;
+  public boolean isCheckmate(Color color) {
+    return generator.state(color, scratchMoves) == GameStatus.State.CHECKMATE;
   }
 
   public boolean isStalemate(Color color) {
-    if (!kings.containsKey(color)) {
-      return false;
-    }
+    return generator.state(color, scratchMoves) == GameStatus.State.STALEMATE;
+  }
 
-    if (isKingInCheck(color)) {
-      return false;
+  /**
+   * State of every player in the current position. After a move this is the result the
+   * move itself computed (eliminated players keep the reason they were removed), so
+   * asking for it again costs nothing until the board changes.
+   */
+  public GameStatus getGameStatus() {
+    if (status == null) {
+      status = evaluateStatus(false);
     }
+    return status;
+  }
 
-    return !hasLegalMoves(color);
+  /** Like {@link #getGameStatus()}; with {@code parallel} the four players are evaluated concurrently. */
+  public GameStatus getGameStatus(boolean parallel) {
+    if (status == null) {
+      status = evaluateStatus(parallel);
+    }
+    return status;
   }
 
-  private void checkAndEliminateMatedPlayers() {
-    Set<Color> toEliminate = new HashSet<>();
+  private GameStatus evaluateStatus(boolean parallel) {
+    GameStatus.State[] states = new GameStatus.State[Color.values().length];
+    if (parallel) {
+      // Each task gets its own generator; the board itself is only read.
+      Arrays.stream(Color.values()).parallel().forEach(color ->
+          states[color.ordinal()] = new MoveGenerator(this).state(color, new MoveList(64)));
+    } else {
+      for (Color color : Color.values()) {
+        states[color.ordinal()] = generator.state(color, scratchMoves);
+      }
+    }
+    return new GameStatus(states);
+  }
 
+  private void checkAndEliminateMatedPlayers(Undo undo, boolean report) {
+    GameStatus result = evaluateStatus(false);
+    boolean removed = false;
     for (Color color : Color.values()) {
-      if (kings.containsKey(color)) {
-        if (isCheckmate(color)) {
-          toEliminate.add(color);
-          System.out.println("Игрок " + color + " получил мат и устранен с доски.");
-        } else if (isStalemate(color)) {
-          toEliminate.add(color);
-          System.out.println("Игрок " + color + " в патовой ситуации и устранен с доски.");
+      GameStatus.State state = result.getState(color);
+      if (!state.isOut() || isEliminated(color)) {
+        continue;
+      }
+      if (report) {
+        switch (state) {
+          case CHECKMATE -> System.out.println("Игрок " + color + " получил мат и устранен с доски.");
+          case STALEMATE -> System.out.println("Игрок " + color + " в патовой ситуации и устранен с доски.");
+          default -> System.out.println("Игрок " + color + " не имеет фигур и устранен с доски.");
         }
-      } else if (!hasPieces(color)) {
-        toEliminate.add(color);
-        System.out.println("Игрок " + color + " не имеет фигур и устранен с доски.");
       }
-    }
-
-    if (!toEliminate.isEmpty()) {
-      for (Color color : toEliminate) {
-        eliminatePlayerPieces(color);
+      eliminatePlayerPieces(color, undo);
+      removed = true;
+    }
+    if (removed) {
+      // The removed pieces may have blocked or given a check, so the others are taken again.
+      GameStatus.State[] states = new GameStatus.State[Color.values().length];
+      for (Color color : Color.values()) {
+        states[color.ordinal()] = isEliminated(color) ? result.getState(color) : generator.state(color, scratchMoves);
       }
+      result = new GameStatus(states);
     }
+    status = result;
   }
 
-  private void eliminatePlayerPieces(Color color) {
-    for (Map.Entry<Position, Square> entry : squares.entrySet()) {
-      Square square = entry.getValue();
-      if (!square.isLegal())
-        continue;
-      Optional<Piece> pOpt = square.getPiece();
-      if (pOpt.isPresent() && pOpt.get().getColor() == color) {
-        square.removePiece();
+  private void eliminatePlayerPieces(Color color, Undo undo) {
+    for (PieceType type : PieceType.values()) {
+      for (int i = pieceList.count(color, type) - 1; i >= 0; i--) {
+        int index = pieceList.square(color, type, i);
+        undo.recordElimination(index, takePiece(index));
       }
     }
     kings.remove(color);
+    setEliminated(eliminated | 1 << color.ordinal());
   }
 
   public String savePosition() {
     BoardState state = new BoardState();
     state.currentPlayer = currentPlayer;
     Map<String, SquareState> squaresMap = new HashMap<>();
-    for (Map.Entry<Position, Square> entry : squares.entrySet()) {
-      Position pos = entry.getKey();
-      Square square = entry.getValue();
+    for (Square square : squares) {
+      Position pos = square.getPosition();
       SquareState squareState = new SquareState();
       if (square.hasPiece()) {
         Piece piece = square.getPiece().get();
@@ -353,30 +706,260 @@ public class Board {
   public void loadPosition(String json) {
     Gson gson = new Gson();
     BoardState state = gson.fromJson(json, BoardState.class);
-    squares.values().forEach(square -> {
-      if (square.isLegal()) {
-        square.removePiece();
-      }
-    });
-    kings.clear();
-    currentPlayer = state.currentPlayer;
+    clear(state.currentPlayer);
     for (Map.Entry<String, SquareState> entry : state.squares.entrySet()) {
-      Position pos = new Position(entry.getKey());
-      Square square = squares.get(pos);
-      if (square == null) {
-        throw new IllegalArgumentException("Неверная позиция в сохранении: " + entry.getKey());
+      Position pos;
+      try {
+        pos = Position.of(entry.getKey());
+      } catch (IllegalArgumentException ex) {
+        throw new IllegalArgumentException("Неверная позиция в сохранении: " + entry.getKey(), ex);
       }
+      int index = pos.index();
       SquareState squareState = entry.getValue();
       if (squareState.piece != null) {
+        if (!Bitboard.isLegal(index)) {
+          throw new IllegalArgumentException("Фигура на нелегальной клетке в сохранении: " + entry.getKey());
+        }
         PieceState pieceState = squareState.piece;
-        Piece piece = createPiece(pieceState.type, pieceState.color);
-        piece.setHasMoved(pieceState.moved);
-        square.setPiece(piece);
-        if (piece instanceof King) {
-          kings.put(piece.getColor(), (King) piece);
+        loadPiece(index, pieceState.type, pieceState.color, pieceState.moved);
+      }
+    }
+    updateEliminated();
+    zobristKey = computeZobristKey();
+  }
+
+  /**
+   * One-line notation of the position in the spirit of FEN: ranks 16 down to 1 separated
+   * by '/', then a space and the side to move. Within a rank a piece is its color letter
+   * (y, b, r, g) followed by its piece letter (P, N, B, R, Q, K), lower case once the piece
+   * has moved; a number stands for that many empty squares, fortress squares included.
+   * A rank holding nothing but an unmoved Yellow king on d1 reads {@code 3yK12}.
+   */
+  public String toNotation() {
+    StringBuilder notation = new StringBuilder();
+    for (int rank = 16; rank >= 1; rank--) {
+      int empty = 0;
+      for (char file = 'a'; file <= 'p'; file++) {
+        Piece piece = squares[Bitboard.index(file, rank)].peekPiece();
+        if (piece == null) {
+          empty++;
+          continue;
+        }
+        if (empty > 0) {
+          notation.append(empty);
+          empty = 0;
+        }
+        char letter = piece.getType().getSymbol(piece.getColor());
+        notation.append(colorLetter(piece.getColor()))
+            .append(piece.hasMoved() ? Character.toLowerCase(letter) : letter);
+      }
+      if (empty > 0) {
+        notation.append(empty);
+      }
+      if (rank > 1) {
+        notation.append('/');
+      }
+    }
+    return notation.append(' ').append(colorLetter(currentPlayer)).toString();
+  }
+
+  /** Loads a position written by {@link #toNotation()}. */
+  public void loadNotation(String notation) {
+    String[] parts = notation.trim().split("\\s+");
+    String[] ranks = parts[0].split("/");
+    if (parts.length != 2 || ranks.length != 16) {
+      throw new IllegalArgumentException("Неверная запись позиции: " + notation);
+    }
+    Color player = colorOf(parts[1].length() == 1 ? parts[1].charAt(0) : '?', notation);
+    clear(player);
+    for (int row = 0; row < 16; row++) {
+      int rank = 16 - row;
+      String line = ranks[row];
+      int file = 0;
+      int i = 0;
+      while (i < line.length()) {
+        char c = line.charAt(i);
+        if (Character.isDigit(c)) {
+          int start = i;
+          while (i < line.length() && Character.isDigit(line.charAt(i))) {
+            i++;
+          }
+          file += Integer.parseInt(line.substring(start, i));
+        } else {
+          if (i + 1 >= line.length() || file >= 16) {
+            throw new IllegalArgumentException("Неверная запись горизонтали " + rank + ": " + line);
+          }
+          Color color = colorOf(c, notation);
+          char letter = line.charAt(i + 1);
+          int index = Bitboard.index((char) ('a' + file), rank);
+          if (!Bitboard.isLegal(index)) {
+            throw new IllegalArgumentException("Фигура на нелегальной клетке в записи: " + Position.of(index));
+          }
+          loadPiece(index, typeOf(Character.toUpperCase(letter), notation), color, Character.isLowerCase(letter));
+          file++;
+          i += 2;
+        }
+      }
+      if (file != 16) {
+        throw new IllegalArgumentException("Неверная запись горизонтали " + rank + ": " + line);
+      }
+    }
+    updateEliminated();
+    zobristKey = computeZobristKey();
+  }
+
+  /**
+   * Compact binary form of the position: a byte with the side to move, a 24-byte bitmap
+   * of the occupied squares among the 192 legal ones (bit {@code i % 8} of byte
+   * {@code 1 + i / 8} for the i-th legal square from a1 on, rank by rank), then per
+   * occupied square in that order a 6-bit code, packed from the low bit up: color (2
+   * bits), piece type (3 bits) and the moved flag. The start position takes 49 bytes.
+   * The length follows from the bitmap, so positions can be stored back to back.
+   *
+   * @throws IllegalStateException if the side to move is not set, as after loading a
+   *     JSON save without {@code current_player}
+   */
+  public byte[] toBytes() {
+    if (currentPlayer == null) {
+      throw new IllegalStateException("Не задан игрок, чей ход: позицию нельзя записать в двоичном виде");
+    }
+    int pieces = 0;
+    for (Color color : Color.values()) {
+      pieces += pieceList.count(color);
+    }
+    byte[] data = new byte[BINARY_HEADER + (pieces * BINARY_PIECE_BITS + 7) / 8];
+    data[0] = (byte) currentPlayer.ordinal();
+    int offset = BINARY_HEADER;
+    long bits = 0;
+    int count = 0;
+    int slot = 0;
+    for (int index = 0; index < squares.length; index++) {
+      if (!Bitboard.isLegal(index)) {
+        continue;
+      }
+      Piece piece = squares[index].peekPiece();
+      if (piece != null) {
+        data[1 + slot / 8] |= (byte) (1 << (slot % 8));
+        int code = piece.getColor().ordinal() | piece.getType().ordinal() << 2 | (piece.hasMoved() ? 1 << 5 : 0);
+        bits |= (long) code << count;
+        count += BINARY_PIECE_BITS;
+        while (count >= 8) {
+          data[offset++] = (byte) bits;
+          bits >>>= 8;
+          count -= 8;
         }
       }
+      slot++;
+    }
+    if (count > 0) {
+      data[offset] = (byte) bits;
     }
+    return data;
+  }
+
+  /** Loads a position written by {@link #toBytes()}; {@code data} must hold exactly one. */
+  public void fromBytes(byte[] data) {
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    fromBytes(buffer);
+    if (buffer.hasRemaining()) {
+      throw new IllegalArgumentException("Лишние байты после двоичной позиции: " + buffer.remaining());
+    }
+  }
+
+  /** Reads the next position written by {@link #toBytes()} from {@code buffer}, leaving it just past it. */
+  public void fromBytes(ByteBuffer buffer) {
+    try {
+      int header = buffer.get();
+      if ((header & ~3) != 0) {
+        throw new IllegalArgumentException("Неизвестный формат двоичной позиции: " + header);
+      }
+      byte[] occupied = new byte[BINARY_HEADER - 1];
+      buffer.get(occupied);
+      clear(Color.values()[header]);
+      long bits = 0;
+      int count = 0;
+      int slot = 0;
+      for (int index = 0; index < squares.length; index++) {
+        if (!Bitboard.isLegal(index)) {
+          continue;
+        }
+        if ((occupied[slot / 8] & (1 << (slot % 8))) != 0) {
+          if (count < BINARY_PIECE_BITS) {
+            bits |= (long) (buffer.get() & 0xFF) << count;
+            count += 8;
+          }
+          int code = (int) bits & ((1 << BINARY_PIECE_BITS) - 1);
+          bits >>>= BINARY_PIECE_BITS;
+          count -= BINARY_PIECE_BITS;
+          int type = code >>> 2 & 7;
+          if (type >= PieceType.values().length) {
+            throw new IllegalArgumentException("Неверная фигура в двоичной позиции на " + Position.of(index));
+          }
+          loadPiece(index, PieceType.values()[type], Color.values()[code & 3], (code & 1 << 5) != 0);
+        }
+        slot++;
+      }
+    } catch (BufferUnderflowException ex) {
+      throw new IllegalArgumentException("Двоичная позиция обрезана", ex);
+    }
+    updateEliminated();
+    zobristKey = computeZobristKey();
+  }
+
+  /**
+   * Loads a position file: the binary form of {@link #toBytes()} if its name ends in
+   * {@link #BINARY_EXTENSION}, the JSON of {@link #savePosition()} otherwise.
+   */
+  public void loadFile(Path file) throws IOException {
+    if (file.getFileName().toString().endsWith(BINARY_EXTENSION)) {
+      fromBytes(Files.readAllBytes(file));
+    } else {
+      loadPosition(Files.readString(file));
+    }
+  }
+
+  private void clear(Color player) {
+    for (Square square : squares) {
+      square.removePiece();
+    }
+    bitboards.clear();
+    pieceList.clear();
+    Arrays.fill(scores, 0);
+    kings.clear();
+    historySize = 0;
+    currentPlayer = player;
+    eliminated = 0;
+  }
+
+  private void loadPiece(int index, PieceType type, Color color, boolean moved) {
+    Piece piece = createPiece(type, color);
+    piece.setHasMoved(moved);
+    putPiece(index, piece);
+    if (piece instanceof King king) {
+      kings.put(color, king);
+    }
+  }
+
+  private static char colorLetter(Color color) {
+    return Character.toLowerCase(color.name().charAt(0));
+  }
+
+  private static Color colorOf(char letter, String notation) {
+    for (Color color : Color.values()) {
+      if (colorLetter(color) == letter) {
+        return color;
+      }
+    }
+    throw new IllegalArgumentException("Неверный цвет '" + letter + "' в записи: " + notation);
+  }
+
+  private static PieceType typeOf(char letter, String notation) {
+    for (PieceType type : PieceType.values()) {
+      if (type.getSymbol(Color.YELLOW) == letter) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Неверная фигура '" + letter + "' в записи: " + notation);
   }
 
   private Piece createPiece(PieceType type, Color color) {
@@ -390,6 +973,32 @@ public class Board {
     };
   }
 
+  /** Everything {@link #unmakeMove()} needs to take back one move; instances are reused. */
+  private static final class Undo {
+    int from;
+    int to;
+    boolean movedBefore;
+    Piece captured;
+    int rookFrom;
+    int rookTo;
+    boolean rookMovedBefore;
+    Color previousPlayer;
+    int previousEliminated;
+    int eliminatedCount;
+    int[] eliminatedSquares = new int[16];
+    Piece[] eliminatedPieces = new Piece[16];
+
+    void recordElimination(int square, Piece piece) {
+      if (eliminatedCount == eliminatedSquares.length) {
+        eliminatedSquares = Arrays.copyOf(eliminatedSquares, eliminatedCount * 2);
+        eliminatedPieces = Arrays.copyOf(eliminatedPieces, eliminatedCount * 2);
+      }
+      eliminatedSquares[eliminatedCount] = square;
+      eliminatedPieces[eliminatedCount] = piece;
+      eliminatedCount++;
+    }
+  }
+
   public static class BoardState {
     @SerializedName("current_player")
     Color currentPlayer;
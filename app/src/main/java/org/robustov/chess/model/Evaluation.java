@@ -0,0 +1,80 @@
+package org.robustov.chess.model;
+
+import org.robustov.chess.pieces.Pawn;
+
+/**
+ * Material and piece-square values in centipawns. {@link Board} adds them up per color
+ * as pieces are placed and removed, so reading a color's score never scans the board.
+ *
+ * <p>The tables are built once for a player advancing toward higher ranks and turned
+ * for each color according to {@link Pawn#getMovementDirection(Color)}: Yellow advances
+ * along +file, Blue along -file, Red along -rank and Green along +rank.
+ */
+public final class Evaluation {
+  private static final int COLORS = Color.values().length;
+  private static final int TYPES = PieceType.values().length;
+  private static final int[] SCORES = new int[COLORS * TYPES * Bitboard.SQUARES];
+
+  static {
+    for (Color color : Color.values()) {
+      int[] direction = Pawn.getMovementDirection(color);
+      for (PieceType type : PieceType.values()) {
+        for (int square = 0; square < Bitboard.SQUARES; square++) {
+          if (Bitboard.isLegal(square)) {
+            SCORES[(color.ordinal() * TYPES + type.ordinal()) * Bitboard.SQUARES + square] =
+                pieceValue(type) + squareValue(type, square, advance(square, direction));
+          }
+        }
+      }
+    }
+  }
+
+  private Evaluation() {
+  }
+
+  /** Material value; the king is never captured, so unlike {@link PieceType#getValue()} it is 0. */
+  public static int pieceValue(PieceType type) {
+    return type == PieceType.KING ? 0 : type.getValue() * 100;
+  }
+
+  /** Material plus piece-square value of a piece of {@code color} and {@code type} on {@code square}. */
+  public static int score(Color color, PieceType type, int square) {
+    return SCORES[(color.ordinal() * TYPES + type.ordinal()) * Bitboard.SQUARES + square];
+  }
+
+  /** How far {@code square} lies from the home edge of a player moving in {@code direction}, 0..15. */
+  private static int advance(int square, int[] direction) {
+    int file = square & 15;
+    int rank = square >>> 4;
+    if (direction[0] != 0) {
+      return direction[0] > 0 ? file : 15 - file;
+    }
+    return direction[1] > 0 ? rank : 15 - rank;
+  }
+
+  /** Ring around the centre of the board: 0 for the four middle squares, 7 for the edge. */
+  private static int ring(int square) {
+    int file = square & 15;
+    int rank = square >>> 4;
+    return Math.max(Math.abs(2 * file - 15), Math.abs(2 * rank - 15)) / 2;
+  }
+
+  /** Fortress corners: files a-d and m-p on ranks 1-2 and 15-16. */
+  private static boolean isFortress(int square) {
+    int rank = square >>> 4;
+    return rank < 2 || rank > 13;
+  }
+
+  private static int squareValue(PieceType type, int square, int advance) {
+    int centre = 7 - ring(square);
+    return switch (type) {
+      case PAWN -> 6 * Math.max(0, advance - 3) + 2 * centre;
+      case KNIGHT -> 5 * centre - 15;
+      case BISHOP -> 3 * centre - 10;
+      case ROOK -> 2 * Math.min(advance, 10) - 5;
+      case QUEEN -> 2 * centre - 5;
+      // The king is safest behind fortress walls and near its own edge.
+      case KING -> (isFortress(square) ? 40 : 0) - 6 * advance - 3 * centre;
+    };
+  }
+}
@@ -0,0 +1,68 @@
+package org.robustov.chess.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/** Check, mate and stalemate state of every player, evaluated for one position in one pass. */
+public final class GameStatus {
+  public enum State {
+    PLAYING,
+    CHECK,
+    CHECKMATE,
+    STALEMATE,
+    NO_PIECES;
+
+    /** Whether a player in this state is removed from the board. */
+    public boolean isOut() {
+      return this == CHECKMATE || this == STALEMATE || this == NO_PIECES;
+    }
+  }
+
+  private final State[] states;
+
+  GameStatus(State[] states) {
+    this.states = states;
+  }
+
+  public State getState(Color color) {
+    return states[color.ordinal()];
+  }
+
+  public boolean isInCheck(Color color) {
+    State state = states[color.ordinal()];
+    return state == State.CHECK || state == State.CHECKMATE;
+  }
+
+  /** Players still in the game. */
+  public Set<Color> getActivePlayers() {
+    Set<Color> active = EnumSet.noneOf(Color.class);
+    for (Color color : Color.values()) {
+      if (!states[color.ordinal()].isOut()) {
+        active.add(color);
+      }
+    }
+    return active;
+  }
+
+  public boolean isGameOver() {
+    return getActivePlayers().size() <= 1;
+  }
+
+  /** The last player standing, or null while the game goes on or if nobody is left. */
+  public Color getWinner() {
+    Set<Color> active = getActivePlayers();
+    return active.size() == 1 ? active.iterator().next() : null;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (Color color : Color.values()) {
+      if (result.length() > 0) {
+        result.append(", ");
+      }
+      result.append(color).append('=').append(states[color.ordinal()]);
+    }
+    return result.toString();
+  }
+}
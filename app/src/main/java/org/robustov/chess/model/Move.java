@@ -0,0 +1,68 @@
+package org.robustov.chess.model;
+
+/**
+ * Moves packed into an int: source square in bits 0-7, target square in bits 8-15 and
+ * flags above them. {@link #NONE} (a1 to a1) never describes a real move.
+ */
+public final class Move {
+  public static final int NONE = 0;
+
+  public static final int CAPTURE = 1 << 16;
+  public static final int CASTLING = 1 << 17;
+  public static final int DOUBLE_PUSH = 1 << 18;
+
+  private Move() {
+  }
+
+  public static int of(int from, int to, int flags) {
+    return from | (to << 8) | flags;
+  }
+
+  public static int from(int move) {
+    return move & 0xFF;
+  }
+
+  public static int to(int move) {
+    return (move >>> 8) & 0xFF;
+  }
+
+  public static boolean isCapture(int move) {
+    return (move & CAPTURE) != 0;
+  }
+
+  public static boolean isCastling(int move) {
+    return (move & CASTLING) != 0;
+  }
+
+  public static boolean isDoublePush(int move) {
+    return (move & DOUBLE_PUSH) != 0;
+  }
+
+  /**
+   * The move among {@code legal} written as {@code text}: {@code c3-b1}, {@code d5xe4} or
+   * just {@code c3b1}. Returns {@link #NONE} if no legal move goes between the squares.
+   */
+  public static int parse(String text, MoveList legal) {
+    String squares = text.replace("-", " ").replace("x", " ").trim();
+    int split = squares.indexOf(' ');
+    if (split < 0) {
+      // "c3b1": the second square starts at the second letter.
+      split = 1;
+      while (split < squares.length() && !Character.isLetter(squares.charAt(split))) {
+        split++;
+      }
+    }
+    int from = Position.of(squares.substring(0, split).trim()).index();
+    int to = Position.of(squares.substring(split).trim()).index();
+    for (int i = 0; i < legal.size(); i++) {
+      if (from(legal.get(i)) == from && to(legal.get(i)) == to) {
+        return legal.get(i);
+      }
+    }
+    return NONE;
+  }
+
+  public static String toString(int move) {
+    return Position.of(from(move)) + (isCapture(move) ? "x" : "-") + Position.of(to(move));
+  }
+}
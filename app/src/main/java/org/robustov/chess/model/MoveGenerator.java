@@ -0,0 +1,200 @@
+package org.robustov.chess.model;
+
+/**
+ * Filters pseudo-legal moves down to legal ones. {@link #prepare} finds the pieces
+ * giving check and the pieces pinned against the king once per position; after that
+ * each candidate move is accepted or rejected without touching the board.
+ */
+final class MoveGenerator {
+  private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+  private final Board board;
+  private final PieceBitboards bitboards;
+  private final PieceList pieceList;
+  private final int[] pinnedSquares = new int[Attacks.DIRECTIONS];
+  private final int[] pinDirections = new int[Attacks.DIRECTIONS];
+  private final long[] occupancy = new long[Bitboard.WORDS];
+  private Color color;
+  private int kingSquare;
+  private int checkerCount;
+  private int checker;
+  private int pinCount;
+
+  MoveGenerator(Board board) {
+    this.board = board;
+    this.bitboards = board.getBitboards();
+    this.pieceList = board.getPieceList();
+  }
+
+  void prepare(Color color) {
+    this.color = color;
+    kingSquare = board.getKingSquare(color);
+    checkerCount = 0;
+    checker = -1;
+    pinCount = 0;
+    if (kingSquare < 0) {
+      return;
+    }
+
+    for (int word = 0; word < Bitboard.WORDS; word++) {
+      long enemies = bitboards.occupied(word) & ~bitboards.color(color, word);
+      long leapers = (Attacks.knight(kingSquare, word) & bitboards.type(PieceType.KNIGHT, word))
+          | (Attacks.king(kingSquare, word) & bitboards.type(PieceType.KING, word));
+      for (Color attacker : Color.values()) {
+        if (attacker != color) {
+          leapers |= Attacks.pawnAttackers(attacker, kingSquare, word)
+              & bitboards.pieces(attacker, PieceType.PAWN, word);
+        }
+      }
+      addCheckers(word, leapers & enemies);
+    }
+
+    for (int direction = 0; direction < Attacks.DIRECTIONS; direction++) {
+      int first = Attacks.firstBlocker(direction, kingSquare, bitboards);
+      if (first < 0) {
+        continue;
+      }
+      if (!bitboards.isOccupiedBy(first, color)) {
+        if (isSliderAlong(first, direction)) {
+          addChecker(first);
+        }
+        continue;
+      }
+      int second = Attacks.firstBlocker(direction, first, bitboards);
+      if (second >= 0 && !bitboards.isOccupiedBy(second, color) && isSliderAlong(second, direction)) {
+        pinnedSquares[pinCount] = first;
+        pinDirections[pinCount] = direction;
+        pinCount++;
+      }
+    }
+  }
+
+  private void addCheckers(int word, long bits) {
+    while (bits != 0) {
+      addChecker((word << 6) | Long.numberOfTrailingZeros(bits));
+      bits &= bits - 1;
+    }
+  }
+
+  private void addChecker(int square) {
+    checker = square;
+    checkerCount++;
+  }
+
+  private boolean isSliderAlong(int square, int direction) {
+    PieceType slider = Attacks.isDiagonal(direction) ? PieceType.BISHOP : PieceType.ROOK;
+    long mask = 1L << square;
+    int word = square >>> 6;
+    return ((bitboards.type(PieceType.QUEEN, word) | bitboards.type(slider, word)) & mask) != 0;
+  }
+
+  /** Appends every legal move of {@code color} to {@code moves}. */
+  void generate(Color color, MoveList moves) {
+    prepare(color);
+    for (PieceType type : PIECE_TYPES) {
+      for (int i = 0, count = pieceList.count(color, type); i < count; i++) {
+        generate(pieceList.square(color, type, i), moves);
+      }
+    }
+  }
+
+  /** Appends the legal moves of the piece on {@code square}; {@link #prepare} must have run for its color. */
+  void generate(int square, MoveList moves) {
+    int start = moves.size();
+    board.pieceAt(square).generateMoves(square, board, moves);
+    int end = start;
+    for (int i = start; i < moves.size(); i++) {
+      int move = moves.get(i);
+      if (isLegal(square, Move.to(move))) {
+        moves.set(end++, move);
+      }
+    }
+    moves.truncate(end);
+  }
+
+  /** Whether {@code color} has at least one legal move; {@code scratch} is cleared and reused. */
+  boolean hasLegalMove(Color color, MoveList scratch) {
+    prepare(color);
+    return hasLegalMove(scratch);
+  }
+
+  private boolean hasLegalMove(MoveList scratch) {
+    for (PieceType type : PIECE_TYPES) {
+      for (int i = 0, count = pieceList.count(color, type); i < count; i++) {
+        int square = pieceList.square(color, type, i);
+        scratch.clear();
+        board.pieceAt(square).generateMoves(square, board, scratch);
+        for (int j = 0; j < scratch.size(); j++) {
+          if (isLegal(square, Move.to(scratch.get(j)))) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check and mate state of {@code color}. Checkers and pins are computed once and
+   * serve both the check test and the search for a legal move.
+   */
+  GameStatus.State state(Color color, MoveList scratch) {
+    if (board.getKingSquare(color) < 0) {
+      return bitboards.hasPieces(color) ? GameStatus.State.PLAYING : GameStatus.State.NO_PIECES;
+    }
+    prepare(color);
+    boolean canMove = hasLegalMove(scratch);
+    if (inCheck()) {
+      return canMove ? GameStatus.State.CHECK : GameStatus.State.CHECKMATE;
+    }
+    return canMove ? GameStatus.State.PLAYING : GameStatus.State.STALEMATE;
+  }
+
+  /** Whether the side passed to {@link #prepare} is currently in check. */
+  boolean inCheck() {
+    return checkerCount > 0;
+  }
+
+  /** Legality of a pseudo-legal move of the prepared side's piece standing on {@code from}. */
+  boolean isLegal(int from, int to) {
+    if (kingSquare < 0) {
+      return true;
+    }
+    if (from == kingSquare) {
+      return isLegalKingMove(from, to);
+    }
+    if (checkerCount > 1) {
+      return false;
+    }
+    for (int i = 0; i < pinCount; i++) {
+      if (pinnedSquares[i] == from && Attacks.direction(kingSquare, to) != pinDirections[i]) {
+        return false;
+      }
+    }
+    if (checkerCount == 1 && to != checker) {
+      int direction = Attacks.direction(kingSquare, checker);
+      return direction >= 0 && Attacks.direction(kingSquare, to) == direction
+          && (Attacks.isIncreasing(direction) ? to < checker : to > checker);
+    }
+    return true;
+  }
+
+  private boolean isLegalKingMove(int from, int to) {
+    long fromMask = 1L << from;
+    long toMask = 1L << to;
+    int fromWord = from >>> 6;
+    int toWord = to >>> 6;
+    bitboards.occupied(occupancy, 0);
+    occupancy[fromWord] &= ~fromMask;
+
+    // Castling: the king lands two files away and the rook on the square it passed.
+    if (Math.abs(to - from) == 2) {
+      int rookFrom = to > from ? (from | 15) : (from & ~15);
+      int rookTo = (from + to) / 2;
+      occupancy[toWord] |= toMask;
+      occupancy[rookFrom >>> 6] &= ~(1L << rookFrom);
+      occupancy[rookTo >>> 6] |= 1L << rookTo;
+    }
+    return !board.isSquareAttacked(to, color, occupancy[0], occupancy[1], occupancy[2], occupancy[3]);
+  }
+}
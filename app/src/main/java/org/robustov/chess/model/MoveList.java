@@ -0,0 +1,58 @@
+package org.robustov.chess.model;
+
+import java.util.Arrays;
+
+/** Growable buffer of packed {@link Move}s meant to be cleared and reused between calls. */
+public final class MoveList {
+  private int[] moves;
+  private int size;
+
+  public MoveList() {
+    this(256);
+  }
+
+  public MoveList(int capacity) {
+    moves = new int[capacity];
+  }
+
+  public void add(int move) {
+    if (size == moves.length) {
+      moves = Arrays.copyOf(moves, size * 2);
+    }
+    moves[size++] = move;
+  }
+
+  public int get(int index) {
+    return moves[index];
+  }
+
+  public void set(int index, int move) {
+    moves[index] = move;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  /** Drops every move from {@code size} on. */
+  public void truncate(int size) {
+    this.size = size;
+  }
+
+  public boolean contains(int from, int to) {
+    for (int i = 0; i < size; i++) {
+      if (Move.from(moves[i]) == from && Move.to(moves[i]) == to) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
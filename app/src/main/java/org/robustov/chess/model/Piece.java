@@ -1,5 +1,6 @@
 package org.robustov.chess.model;
 
+import java.util.HashSet;
 import java.util.Set;
 
 public abstract class Piece {
@@ -32,12 +33,49 @@ public abstract class Piece {
     hasMoved = moved;
   }
 
-  public abstract Set<Position> getValidMoves(Position position, Board board);
+  /** Writes the pseudo-legal moves of this piece standing on {@code square} into {@code moves}. */
+  public abstract void generateMoves(int square, Board board, MoveList moves);
+
+  public Set<Position> getValidMoves(Position position, Board board) {
+    MoveList moves = new MoveList(32);
+    generateMoves(position.index(), board, moves);
+    Set<Position> validMoves = new HashSet<>();
+    for (int i = 0; i < moves.size(); i++) {
+      validMoves.add(Position.of(Move.to(moves.get(i))));
+    }
+    return validMoves;
+  }
 
   public boolean isValidMove(Position position, Position target, Board board) {
     return getValidMoves(position, board).contains(target);
   }
 
+  protected static void addMoves(MoveList moves, int from, int word, long targets, long enemies) {
+    while (targets != 0) {
+      long bit = targets & -targets;
+      int to = (word << 6) | Long.numberOfTrailingZeros(bit);
+      moves.add(Move.of(from, to, (enemies & bit) != 0 ? Move.CAPTURE : 0));
+      targets ^= bit;
+    }
+  }
+
+  protected void addSlidingMoves(int square, Board board, MoveList moves, int firstDirection, int lastDirection) {
+    PieceBitboards bitboards = board.getBitboards();
+    long o0 = bitboards.occupied(0);
+    long o1 = bitboards.occupied(1);
+    long o2 = bitboards.occupied(2);
+    long o3 = bitboards.occupied(3);
+
+    for (int direction = firstDirection; direction <= lastDirection; direction++) {
+      int blocker = Attacks.firstBlocker(direction, square, o0, o1, o2, o3);
+      for (int word = 0; word < Bitboard.WORDS; word++) {
+        long own = bitboards.color(color, word);
+        addMoves(moves, square, word, Attacks.rayAttacks(direction, square, blocker, word) & ~own,
+            bitboards.occupied(word) & ~own);
+      }
+    }
+  }
+
   public char getSymbol() {
     return type.getSymbol(color);
   }
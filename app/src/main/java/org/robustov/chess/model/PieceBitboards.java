@@ -0,0 +1,78 @@
+package org.robustov.chess.model;
+
+import java.util.Arrays;
+
+import static org.robustov.chess.model.Bitboard.WORDS;
+
+/**
+ * Occupancy of a {@link Board} as 256-bit sets: one per {@link Color}, one per
+ * {@link PieceType} and their union. Kept in sync by the board on every change.
+ */
+public final class PieceBitboards {
+  private static final int COLORS = Color.values().length;
+  private static final int TYPES = PieceType.values().length;
+
+  private final long[] byColor = new long[COLORS * WORDS];
+  private final long[] byType = new long[TYPES * WORDS];
+  private final long[] occupied = new long[WORDS];
+
+  void add(int square, Color color, PieceType type) {
+    Bitboard.set(byColor, color.ordinal() * WORDS, square);
+    Bitboard.set(byType, type.ordinal() * WORDS, square);
+    Bitboard.set(occupied, 0, square);
+  }
+
+  void remove(int square, Color color, PieceType type) {
+    Bitboard.clear(byColor, color.ordinal() * WORDS, square);
+    Bitboard.clear(byType, type.ordinal() * WORDS, square);
+    Bitboard.clear(occupied, 0, square);
+  }
+
+  void clear() {
+    Arrays.fill(byColor, 0L);
+    Arrays.fill(byType, 0L);
+    Arrays.fill(occupied, 0L);
+  }
+
+  public boolean isOccupied(int square) {
+    return Bitboard.test(occupied, 0, square);
+  }
+
+  public boolean isOccupiedBy(int square, Color color) {
+    return Bitboard.test(byColor, color.ordinal() * WORDS, square);
+  }
+
+  public boolean hasPieces(Color color) {
+    return !Bitboard.isEmpty(byColor, color.ordinal() * WORDS);
+  }
+
+  public int count(Color color) {
+    return Bitboard.popCount(byColor, color.ordinal() * WORDS);
+  }
+
+  public long occupied(int word) {
+    return occupied[word];
+  }
+
+  public long color(Color color, int word) {
+    return byColor[color.ordinal() * WORDS + word];
+  }
+
+  public long type(PieceType type, int word) {
+    return byType[type.ordinal() * WORDS + word];
+  }
+
+  public long pieces(Color color, PieceType type, int word) {
+    return byColor[color.ordinal() * WORDS + word] & byType[type.ordinal() * WORDS + word];
+  }
+
+  /** Copies the occupancy of all pieces into {@code dst} at {@code offset}. */
+  public void occupied(long[] dst, int offset) {
+    System.arraycopy(occupied, 0, dst, offset, WORDS);
+  }
+
+  /** Copies the squares held by {@code color} into {@code dst} at {@code offset}. */
+  public void color(Color color, long[] dst, int offset) {
+    System.arraycopy(byColor, color.ordinal() * WORDS, dst, offset, WORDS);
+  }
+}
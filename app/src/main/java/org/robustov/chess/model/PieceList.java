@@ -0,0 +1,70 @@
+package org.robustov.chess.model;
+
+import java.util.Arrays;
+
+/**
+ * Squares of the pieces of a {@link Board}, one list per {@link Color} and
+ * {@link PieceType}. Removal swaps the last entry into the freed slot, so the order
+ * inside a list is arbitrary. Kept in sync by the board on every change.
+ */
+public final class PieceList {
+  private static final int TYPES = PieceType.values().length;
+  private static final PieceType[] PIECE_TYPES = PieceType.values();
+
+  private final int[][] squares = new int[Color.values().length * TYPES][];
+  private final int[] counts = new int[squares.length];
+  private final int[] slots = new int[Bitboard.SQUARES];
+
+  PieceList() {
+    for (int list = 0; list < squares.length; list++) {
+      squares[list] = new int[PIECE_TYPES[list % TYPES] == PieceType.PAWN ? 16 : 4];
+    }
+  }
+
+  void add(int square, Color color, PieceType type) {
+    int list = color.ordinal() * TYPES + type.ordinal();
+    int count = counts[list];
+    if (count == squares[list].length) {
+      squares[list] = Arrays.copyOf(squares[list], count * 2);
+    }
+    squares[list][count] = square;
+    slots[square] = count;
+    counts[list] = count + 1;
+  }
+
+  void remove(int square, Color color, PieceType type) {
+    int list = color.ordinal() * TYPES + type.ordinal();
+    int last = --counts[list];
+    int slot = slots[square];
+    int moved = squares[list][last];
+    squares[list][slot] = moved;
+    slots[moved] = slot;
+  }
+
+  void clear() {
+    Arrays.fill(counts, 0);
+  }
+
+  public int count(Color color, PieceType type) {
+    return counts[color.ordinal() * TYPES + type.ordinal()];
+  }
+
+  public int count(Color color) {
+    int total = 0;
+    for (int list = color.ordinal() * TYPES, end = list + TYPES; list < end; list++) {
+      total += counts[list];
+    }
+    return total;
+  }
+
+  /** The {@code i}-th square holding a piece of the given color and type, {@code i < count(color, type)}. */
+  public int square(Color color, PieceType type, int i) {
+    return squares[color.ordinal() * TYPES + type.ordinal()][i];
+  }
+
+  /** Some square holding a piece of the given color and type, or -1 if there is none. */
+  public int first(Color color, PieceType type) {
+    int list = color.ordinal() * TYPES + type.ordinal();
+    return counts[list] == 0 ? -1 : squares[list][0];
+  }
+}
@@ -1,14 +1,24 @@
 package org.robustov.chess.model;
 
 public final class Position {
+  private static final Position[] POSITIONS = new Position[Bitboard.SQUARES];
+
+  static {
+    for (int index = 0; index < POSITIONS.length; index++) {
+      POSITIONS[index] = new Position((char) ('a' + (index & 15)), (index >>> 4) + 1);
+    }
+  }
+
   private final char file;
   private final int rank;
+  private final int index;
 
   public Position(char file, int rank) {
     validateFile(file);
     validateRank(rank);
     this.file = Character.toLowerCase(file);
     this.rank = rank;
+    this.index = Bitboard.index(this.file, rank);
   }
 
   public Position(String notation) {
@@ -19,15 +29,35 @@ public final class Position {
     this.rank = Integer.parseInt(notation.substring(1));
     validateFile(this.file);
     validateRank(this.rank);
+    this.index = Bitboard.index(this.file, rank);
+  }
+
+  /** Shared instance for the square; prefer it to the constructors. */
+  public static Position of(char file, int rank) {
+    validateFile(file);
+    validateRank(rank);
+    return POSITIONS[Bitboard.index(file, rank)];
   }
 
-  private void validateFile(char file) {
+  /** Shared instance for a square index in 0..255, as returned by {@link #index()}. */
+  public static Position of(int index) {
+    if (index < 0 || index >= POSITIONS.length) {
+      throw new IllegalArgumentException("Invalid square index: " + index + " (must be 0-255)");
+    }
+    return POSITIONS[index];
+  }
+
+  public static Position of(String notation) {
+    return POSITIONS[new Position(notation).index];
+  }
+
+  private static void validateFile(char file) {
     if (file < 'a' || file > 'p') {
       throw new IllegalArgumentException("Invalid file: " + file + " (must be a-p)");
     }
   }
 
-  private void validateRank(int rank) {
+  private static void validateRank(int rank) {
     if (rank < 1 || rank > 16) {
       throw new IllegalArgumentException("Invalid rank: " + rank + " (must be 1-16)");
     }
@@ -41,6 +71,11 @@ public final class Position {
     return rank;
   }
 
+  /** Square index {@code (rank - 1) * 16 + (file - 'a')}, usable directly as an array index. */
+  public int index() {
+    return index;
+  }
+
   public String toNotation() {
     return "" + file + rank;
   }
@@ -56,12 +91,12 @@ public final class Position {
     if (o == null || getClass() != o.getClass())
       return false;
     Position position = (Position) o;
-    return file == position.file && rank == position.rank;
+    return index == position.index;
   }
 
   @Override
   public int hashCode() {
-    return 31 * file + rank;
+    return index;
   }
 
   @Override
@@ -35,6 +35,14 @@ public class Square {
     this.piece = piece;
   }
 
+  Piece peekPiece() {
+    return piece;
+  }
+
+  void clearPiece() {
+    piece = null;
+  }
+
   public Optional<Piece> removePiece() {
     Piece removed = piece;
     piece = null;
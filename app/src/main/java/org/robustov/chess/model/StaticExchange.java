@@ -0,0 +1,143 @@
+package org.robustov.chess.model;
+
+/**
+ * Static exchange evaluation: the material outcome of a capture followed by every
+ * recapture on the same square, each side always taking with its cheapest piece and
+ * free to stop when going on would lose. Sliders lined up behind a piece that has
+ * captured join the exchange (x-rays).
+ *
+ * <p>As in the paranoid search, the other three colors are one side: any of them may
+ * recapture against the mover. Pins and checks are ignored. Works on the bitboards
+ * only, without generating or making moves.
+ */
+final class StaticExchange {
+  private static final PieceType[] PIECE_TYPES = PieceType.values();
+  private static final int KING_VALUE = 100_000;
+  private static final int MAX_EXCHANGES = 128;
+
+  private final PieceBitboards bitboards;
+  private final long[] occupancy = new long[Bitboard.WORDS];
+  private final long[] attackers = new long[Bitboard.WORDS];
+  private final int[] gains = new int[MAX_EXCHANGES];
+
+  StaticExchange(Board board) {
+    this.bitboards = board.getBitboards();
+  }
+
+  /** Material won by the piece on {@code from} moving to {@code to}, in centipawns; negative if it loses. */
+  int evaluate(int from, int to) {
+    Color mover = colorAt(from);
+    if (mover == null) {
+      throw new IllegalArgumentException("No piece on " + Bitboard.fileOf(from) + Bitboard.rankOf(from));
+    }
+    if (bitboards.isOccupiedBy(to, mover)) {
+      throw new IllegalArgumentException("Cannot capture an own piece on " + Bitboard.fileOf(to) + Bitboard.rankOf(to));
+    }
+    for (int word = 0; word < Bitboard.WORDS; word++) {
+      occupancy[word] = bitboards.occupied(word);
+    }
+    findAttackers(to);
+
+    gains[0] = bitboards.isOccupied(to) ? value(typeAt(to)) : 0;
+    int depth = 0;
+    int square = from;
+    PieceType piece = typeAt(from);
+    boolean moverToPlay = false;
+    do {
+      depth++;
+      gains[depth] = value(piece) - gains[depth - 1];
+      if (Math.max(-gains[depth - 1], gains[depth]) < 0) {
+        break;
+      }
+      remove(to, square);
+      square = cheapestAttacker(mover, moverToPlay);
+      if (square >= 0) {
+        piece = typeAt(square);
+      }
+      moverToPlay = !moverToPlay;
+    } while (square >= 0 && depth < MAX_EXCHANGES - 1);
+
+    while (--depth > 0) {
+      gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+    }
+    return gains[0];
+  }
+
+  private void findAttackers(int target) {
+    for (int word = 0; word < Bitboard.WORDS; word++) {
+      long found = (Attacks.knight(target, word) & bitboards.type(PieceType.KNIGHT, word))
+          | (Attacks.king(target, word) & bitboards.type(PieceType.KING, word));
+      for (Color color : Color.values()) {
+        found |= Attacks.pawnAttackers(color, target, word) & bitboards.pieces(color, PieceType.PAWN, word);
+      }
+      attackers[word] = found;
+    }
+    for (int direction = 0; direction < Attacks.DIRECTIONS; direction++) {
+      addSlider(target, direction);
+    }
+  }
+
+  /** Takes the piece on {@code square} out of the exchange and uncovers any slider behind it. */
+  private void remove(int target, int square) {
+    Bitboard.clear(occupancy, 0, square);
+    Bitboard.clear(attackers, 0, square);
+    int direction = Attacks.direction(target, square);
+    if (direction >= 0) {
+      addSlider(target, direction);
+    }
+  }
+
+  private void addSlider(int target, int direction) {
+    int blocker = Attacks.firstBlocker(direction, target,
+        occupancy[0], occupancy[1], occupancy[2], occupancy[3]);
+    if (blocker < 0) {
+      return;
+    }
+    int word = blocker >>> 6;
+    long mask = 1L << blocker;
+    long sliders = bitboards.type(PieceType.QUEEN, word)
+        | bitboards.type(Attacks.isDiagonal(direction) ? PieceType.BISHOP : PieceType.ROOK, word);
+    if ((sliders & mask) != 0) {
+      attackers[word] |= mask;
+    }
+  }
+
+  /** Cheapest remaining attacker of the mover, or of any other color, or -1 if there is none. */
+  private int cheapestAttacker(Color mover, boolean moverToPlay) {
+    for (PieceType type : PIECE_TYPES) {
+      for (int word = 0; word < Bitboard.WORDS; word++) {
+        long own = bitboards.color(mover, word);
+        long candidates = attackers[word] & occupancy[word] & bitboards.type(type, word)
+            & (moverToPlay ? own : ~own);
+        if (candidates != 0) {
+          return (word << 6) | Long.numberOfTrailingZeros(candidates);
+        }
+      }
+    }
+    return -1;
+  }
+
+  private Color colorAt(int square) {
+    for (Color color : Color.values()) {
+      if (bitboards.isOccupiedBy(square, color)) {
+        return color;
+      }
+    }
+    return null;
+  }
+
+  private PieceType typeAt(int square) {
+    int word = square >>> 6;
+    long mask = 1L << square;
+    for (PieceType type : PIECE_TYPES) {
+      if ((bitboards.type(type, word) & mask) != 0) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("No piece on " + Bitboard.fileOf(square) + Bitboard.rankOf(square));
+  }
+
+  private static int value(PieceType type) {
+    return type == PieceType.KING ? KING_VALUE : Evaluation.pieceValue(type);
+  }
+}
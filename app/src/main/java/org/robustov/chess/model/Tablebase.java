@@ -0,0 +1,178 @@
+package org.robustov.chess.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Endgame tablebases for a king and a queen or rook against a bare king, the endings
+ * that remain once two players are out. A table holds the exact result for every
+ * placement of the three pieces on the 192 legal squares and either side to move, and
+ * is memory-mapped, so opening it reads nothing and probes cost a page access at most.
+ *
+ * <p>A file, written by {@link TablebaseGenerator}, is a 16-byte header (magic, the
+ * ordinal of the extra piece type and the entry width in bytes) followed by one signed
+ * entry per {@link #index index}, big-endian: 0 is a draw, {@code d + 1} a win and
+ * {@code -(d + 1)} a loss for the side to move, {@code d} plies before the loser is
+ * eliminated; the minimum value marks placements that cannot occur. Entries take one
+ * byte unless some distance does not fit.
+ *
+ * <p>Probes only read the mappings and are safe from any number of threads.
+ */
+public final class Tablebase implements Closeable {
+  static final long MAGIC = 0x4643_5442_0000_0001L;
+  static final int HEADER_BYTES = 16;
+
+  /** Number of legal squares, the size of each of the three index dimensions. */
+  static final int SLOTS = 192;
+  static final int ENTRIES = 2 * SLOTS * SLOTS * SLOTS;
+
+  /** Legal squares in index order, and the index of each square (-1 for illegal ones). */
+  static final int[] SQUARES = new int[SLOTS];
+  static final int[] SLOT = new int[Bitboard.SQUARES];
+
+  static {
+    int slot = 0;
+    for (int square = 0; square < Bitboard.SQUARES; square++) {
+      SLOT[square] = Bitboard.isLegal(square) ? slot : -1;
+      if (Bitboard.isLegal(square)) {
+        SQUARES[slot++] = square;
+      }
+    }
+  }
+
+  public enum Material {
+    KQK(PieceType.QUEEN),
+    KRK(PieceType.ROOK);
+
+    private final PieceType piece;
+
+    Material(PieceType piece) {
+      this.piece = piece;
+    }
+
+    /** The piece the stronger side has besides its king. */
+    public PieceType getPiece() {
+      return piece;
+    }
+
+    public String getFileName() {
+      return name().toLowerCase() + ".fctb";
+    }
+  }
+
+  public enum Outcome {
+    WIN, DRAW, LOSS
+  }
+
+  /**
+   * Result for the side to move; {@code distance} is the number of plies until the loser
+   * is eliminated with best play (the winner hurrying, the loser holding out), 0 for a draw.
+   */
+  public record Result(Outcome outcome, int distance) {
+    @Override
+    public String toString() {
+      return outcome == Outcome.DRAW ? "draw" : outcome.name().toLowerCase() + " in " + distance + " plies";
+    }
+  }
+
+  private final List<FileChannel> channels;
+  private final MappedByteBuffer[] tables;
+  private final int[] widths;
+
+  private Tablebase(List<FileChannel> channels, MappedByteBuffer[] tables, int[] widths) {
+    this.channels = channels;
+    this.tables = tables;
+    this.widths = widths;
+  }
+
+  /** Maps every table found in {@code directory}; materials without a file are not probed. */
+  public static Tablebase open(Path directory) throws IOException {
+    List<FileChannel> channels = new ArrayList<>();
+    MappedByteBuffer[] tables = new MappedByteBuffer[Material.values().length];
+    int[] widths = new int[tables.length];
+    try {
+      for (Material material : Material.values()) {
+        Path file = directory.resolve(material.getFileName());
+        if (!Files.exists(file)) {
+          continue;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channels.add(channel);
+        long size = channel.size();
+        MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        int width = size < HEADER_BYTES ? 0 : table.getInt(12);
+        if (size < HEADER_BYTES || table.getLong(0) != MAGIC || table.getInt(8) != material.piece.ordinal()
+            || (width != 1 && width != 2)) {
+          throw new IOException("Not a " + material + " tablebase: " + file);
+        }
+        if (size != HEADER_BYTES + (long) ENTRIES * width) {
+          throw new IOException("Truncated tablebase: " + file);
+        }
+        tables[material.ordinal()] = table;
+        widths[material.ordinal()] = width;
+      }
+    } catch (IOException | RuntimeException e) {
+      for (FileChannel channel : channels) {
+        channel.close();
+      }
+      throw e;
+    }
+    return new Tablebase(channels, tables, widths);
+  }
+
+  /** Materials that have a table. */
+  public Set<Material> getMaterials() {
+    Set<Material> materials = EnumSet.noneOf(Material.class);
+    for (Material material : Material.values()) {
+      if (tables[material.ordinal()] != null) {
+        materials.add(material);
+      }
+    }
+    return materials;
+  }
+
+  /** Same as {@link Board#probeTablebase(Tablebase)}. */
+  public Optional<Result> probe(Board board) {
+    return board.probeTablebase(this);
+  }
+
+  /** Looks up a placement given as board square indices; empty if there is no table for it. */
+  Optional<Result> probe(Material material, boolean strongToMove, int strongKing, int piece, int weakKing) {
+    MappedByteBuffer table = tables[material.ordinal()];
+    if (table == null) {
+      return Optional.empty();
+    }
+    int entry = index(strongToMove, SLOT[strongKing], SLOT[piece], SLOT[weakKing]);
+    int value = widths[material.ordinal()] == 1
+        ? table.get(HEADER_BYTES + entry)
+        : table.getShort(HEADER_BYTES + 2 * entry);
+    if (value == (widths[material.ordinal()] == 1 ? Byte.MIN_VALUE : Short.MIN_VALUE)) {
+      return Optional.empty();
+    }
+    return Optional.of(value == 0 ? new Result(Outcome.DRAW, 0)
+        : value > 0 ? new Result(Outcome.WIN, value - 1)
+        : new Result(Outcome.LOSS, -value - 1));
+  }
+
+  /** Entry of a placement given as legal-square indices (positions in {@link #SQUARES}). */
+  static int index(boolean strongToMove, int strongKing, int piece, int weakKing) {
+    return (((strongToMove ? 0 : SLOTS) + strongKing) * SLOTS + piece) * SLOTS + weakKing;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (FileChannel channel : channels) {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,422 @@
+package org.robustov.chess.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiConsumer;
+
+import static org.robustov.chess.model.Tablebase.ENTRIES;
+import static org.robustov.chess.model.Tablebase.SLOT;
+import static org.robustov.chess.model.Tablebase.SLOTS;
+import static org.robustov.chess.model.Tablebase.SQUARES;
+
+/**
+ * Builds a {@link Tablebase} file by retrograde analysis. Every placement is first
+ * classified and given a counter of the moves not yet known to lose; then, distance by
+ * distance, the positions decided at the previous distance are unmade one move back:
+ * a predecessor of a loss is a win, and a predecessor whose counter drops to zero has
+ * only losing moves left. Whatever is undecided at the end is a draw.
+ *
+ * <p>The rules are those of {@link Board}: only two players are left, so they alternate;
+ * a player without legal moves after any move, whether mated or stalemated, is
+ * eliminated, which makes stalemate a loss; and a bare king that takes the queen or rook
+ * leaves two kings that can only draw. Castling is not considered.
+ *
+ * <p>Each pass is split across a thread pool; entries are updated by compare-and-set,
+ * and since every pass only writes the next distance the outcome does not
+ * depend on the scheduling. Between passes the whole state can be saved to a checkpoint
+ * file, from which an interrupted run carries on.
+ */
+public final class TablebaseGenerator {
+  private static final long CHECKPOINT_MAGIC = 0x4643_5450_0000_0001L;
+  private static final int CHUNKS = 256;
+
+  // Values while generating: the file encoding, plus undecided and terminal draws.
+  private static final short UNKNOWN = 0;
+  private static final short DRAWN = Short.MAX_VALUE;
+  private static final short INVALID = Short.MIN_VALUE;
+
+  private static final int[][] KING_STEPS = new int[Bitboard.SQUARES][];
+  private static final int[][][] RAYS = new int[Bitboard.SQUARES][Attacks.DIRECTIONS][];
+
+  static {
+    for (int square : SQUARES) {
+      KING_STEPS[square] = squares(Attacks::king, square);
+      for (int i = 0; i < Attacks.DIRECTIONS; i++) {
+        int direction = i;
+        int[] ray = squares((s, word) -> Attacks.ray(direction, s, word), square);
+        if (!Attacks.isIncreasing(direction)) {
+          // Nearest square first.
+          for (int a = 0, b = ray.length - 1; a < b; a++, b--) {
+            int swap = ray[a];
+            ray[a] = ray[b];
+            ray[b] = swap;
+          }
+        }
+        RAYS[square][direction] = ray;
+      }
+    }
+  }
+
+  private interface SquareSet {
+    long word(int square, int word);
+  }
+
+  private static int[] squares(SquareSet set, int square) {
+    int[] result = new int[Bitboard.SQUARES];
+    int count = 0;
+    for (int word = 0; word < Bitboard.WORDS; word++) {
+      for (long bits = set.word(square, word); bits != 0; bits &= bits - 1) {
+        result[count++] = word << 6 | Long.numberOfTrailingZeros(bits);
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  private final Tablebase.Material material;
+  private final boolean diagonal;
+  private final int threads;
+  // Per entry the value in the high half and the count of moves not yet known to lose below.
+  private final AtomicIntegerArray state = new AtomicIntegerArray(ENTRIES);
+  private BiConsumer<Integer, Long> listener;
+
+  public TablebaseGenerator(Tablebase.Material material, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Thread count must be positive: " + threads);
+    }
+    this.material = material;
+    this.diagonal = material.getPiece() == PieceType.QUEEN;
+    this.threads = threads;
+  }
+
+  /** Called after every pass with the distance just finished and the positions it decided. */
+  public void setProgressListener(BiConsumer<Integer, Long> listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Generates the table into {@code file}. Progress is saved next to it, in a file with
+   * the suffix {@code .part}, whenever {@code checkpointSeconds} have passed since the
+   * last save; if such a file exists, generation resumes from it. The checkpoint is
+   * removed once the table is written.
+   */
+  public void generate(Path file, long checkpointSeconds) throws IOException {
+    Path checkpoint = file.resolveSibling(file.getFileName() + ".part");
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      int distance = Files.exists(checkpoint) ? load(checkpoint) : initialize(pool);
+      long lastSave = System.nanoTime();
+      while (true) {
+        int current = distance;
+        long decided = runPass(pool, (from, to) -> propagate(current, from, to));
+        if (listener != null) {
+          listener.accept(distance, decided);
+        }
+        distance++;
+        // Initialization decides positions up to distance 1, so only later passes can end the run.
+        if (decided == 0 && distance > 1) {
+          break;
+        }
+        if (System.nanoTime() - lastSave >= checkpointSeconds * 1_000_000_000L) {
+          save(checkpoint, distance);
+          lastSave = System.nanoTime();
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    write(file);
+    Files.deleteIfExists(checkpoint);
+  }
+
+  /** Number of positions with the given outcome for the side to move. */
+  public long count(Tablebase.Outcome outcome) {
+    long count = 0;
+    for (int entry = 0; entry < ENTRIES; entry++) {
+      short value = value(state.getPlain(entry));
+      if (value != INVALID && outcome == (value == UNKNOWN || value == DRAWN ? Tablebase.Outcome.DRAW
+          : value > 0 ? Tablebase.Outcome.WIN : Tablebase.Outcome.LOSS)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Longest distance to elimination in the table. */
+  public int maxDistance() {
+    int max = 0;
+    for (int entry = 0; entry < ENTRIES; entry++) {
+      short value = value(state.getPlain(entry));
+      if (value != INVALID && value != DRAWN && value != UNKNOWN) {
+        max = Math.max(max, Math.abs(value) - 1);
+      }
+    }
+    return max;
+  }
+
+  private interface Range {
+    long run(int from, int to);
+  }
+
+  private long runPass(ExecutorService pool, Range range) throws IOException {
+    List<Callable<Long>> tasks = new ArrayList<>();
+    int chunk = (ENTRIES + CHUNKS - 1) / CHUNKS;
+    for (int from = 0; from < ENTRIES; from += chunk) {
+      int start = from;
+      int end = Math.min(ENTRIES, from + chunk);
+      tasks.add(() -> range.run(start, end));
+    }
+    long total = 0;
+    try {
+      for (Future<Long> result : pool.invokeAll(tasks)) {
+        total += result.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Tablebase generation interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Tablebase generation failed", e.getCause());
+    }
+    return total;
+  }
+
+  private int initialize(ExecutorService pool) throws IOException {
+    runPass(pool, this::classify);
+    return 0;
+  }
+
+  /** Gives every placement in the range its terminal value, or a counter of its moves. */
+  private long classify(int from, int to) {
+    for (int entry = from; entry < to; entry++) {
+      boolean strongToMove = entry < ENTRIES / 2;
+      int strongKing = SQUARES[entry / (SLOTS * SLOTS) % SLOTS];
+      int piece = SQUARES[entry / SLOTS % SLOTS];
+      int weakKing = SQUARES[entry % SLOTS];
+      if (strongKing == piece || strongKing == weakKing || piece == weakKing
+          || Attacks.isKingAttack(strongKing, weakKing)
+          || (strongToMove && attacks(piece, weakKing, strongKing))) {
+        state.setPlain(entry, INVALID << 16);
+        continue;
+      }
+
+      int strongMoves = strongMoves(strongKing, piece, weakKing);
+      int weakMoves = 0;
+      boolean capture = false;
+      for (int target : KING_STEPS[weakKing]) {
+        if (Attacks.isKingAttack(strongKing, target)) {
+          continue;
+        }
+        if (target == piece) {
+          capture = true;
+        } else if (!attacks(piece, target, strongKing)) {
+          weakMoves++;
+        }
+      }
+
+      // The player who just moved is eliminated as well if it is left without moves.
+      int moves = strongToMove ? strongMoves : weakMoves + (capture ? 1 : 0);
+      boolean opponentMoves = strongToMove ? weakMoves > 0 || capture : strongMoves > 0;
+      if (moves == 0) {
+        state.setPlain(entry, (opponentMoves ? loss(0) : DRAWN) << 16);
+        continue;
+      }
+      if (!opponentMoves) {
+        state.setPlain(entry, win(0) << 16);
+        continue;
+      }
+
+      int counter = strongToMove ? strongMoves : weakMoves;
+      if (capture && !strongToMove) {
+        // Two bare kings: a draw unless one of them has no move at once.
+        boolean strongStuck = kingMoves(strongKing, piece) == 0;
+        boolean weakStuck = kingMoves(piece, strongKing) == 0;
+        if (strongStuck && !weakStuck) {
+          state.setPlain(entry, win(1) << 16);
+          continue;
+        }
+        if (!weakStuck || strongStuck) {
+          counter++;
+        }
+      }
+      state.setPlain(entry, counter == 0 ? loss(1) << 16 : counter);
+    }
+    return 0;
+  }
+
+  /**
+   * Unmakes one move from every position of the range decided at {@code distance} and
+   * updates the predecessors; returns how many of them got decided.
+   */
+  private long propagate(int distance, int from, int to) {
+    short win = win(distance);
+    short loss = loss(distance);
+    long decided = 0;
+    for (int entry = from; entry < to; entry++) {
+      short value = value(state.getPlain(entry));
+      if (value != win && value != loss) {
+        continue;
+      }
+      boolean lost = value == loss;
+      int strongKing = SQUARES[entry / (SLOTS * SLOTS) % SLOTS];
+      int piece = SQUARES[entry / SLOTS % SLOTS];
+      int weakKing = SQUARES[entry % SLOTS];
+      if (entry < ENTRIES / 2) {
+        for (int source : KING_STEPS[weakKing]) {
+          if (source != strongKing && source != piece && !Attacks.isKingAttack(strongKing, source)) {
+            decided += update(Tablebase.index(false, SLOT[strongKing], SLOT[piece], SLOT[source]), lost, distance);
+          }
+        }
+      } else {
+        for (int source : KING_STEPS[strongKing]) {
+          if (source != piece && source != weakKing && !Attacks.isKingAttack(weakKing, source)) {
+            decided += update(Tablebase.index(true, SLOT[source], SLOT[piece], SLOT[weakKing]), lost, distance);
+          }
+        }
+        for (int direction = firstDirection(); direction <= lastDirection(); direction++) {
+          for (int source : RAYS[piece][direction]) {
+            if (source == strongKing || source == weakKing) {
+              break;
+            }
+            decided += update(Tablebase.index(true, SLOT[strongKing], SLOT[source], SLOT[weakKing]), lost, distance);
+          }
+        }
+      }
+    }
+    return decided;
+  }
+
+  /** A move of {@code entry} leads to a position lost or won for the other side at {@code distance}. */
+  private int update(int entry, boolean lost, int distance) {
+    while (true) {
+      int current = state.get(entry);
+      if (value(current) != UNKNOWN) {
+        return 0;
+      }
+      int next = lost ? win(distance + 1) << 16 : current == 1 ? loss(distance + 1) << 16 : current - 1;
+      if (state.compareAndSet(entry, current, next)) {
+        return value(next) == UNKNOWN ? 0 : 1;
+      }
+    }
+  }
+
+  private static short value(int state) {
+    return (short) (state >> 16);
+  }
+
+  private int strongMoves(int strongKing, int piece, int weakKing) {
+    int count = 0;
+    for (int target : KING_STEPS[strongKing]) {
+      if (target != piece && !Attacks.isKingAttack(weakKing, target)) {
+        count++;
+      }
+    }
+    for (int direction = firstDirection(); direction <= lastDirection(); direction++) {
+      for (int target : RAYS[piece][direction]) {
+        if (target == strongKing || target == weakKing) {
+          break;
+        }
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static int kingMoves(int king, int otherKing) {
+    int count = 0;
+    for (int target : KING_STEPS[king]) {
+      if (!Attacks.isKingAttack(otherKing, target)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Whether the piece on {@code piece} attacks {@code target} when {@code blocker} is the only other piece. */
+  private boolean attacks(int piece, int target, int blocker) {
+    int direction = Attacks.direction(piece, target);
+    if (direction < 0 || direction < firstDirection() || direction > lastDirection()) {
+      return false;
+    }
+    return Attacks.direction(piece, blocker) != direction
+        || (Attacks.isIncreasing(direction) ? blocker > target : blocker < target);
+  }
+
+  private int firstDirection() {
+    return Attacks.EAST;
+  }
+
+  private int lastDirection() {
+    return diagonal ? Attacks.SOUTH_EAST : Attacks.SOUTH;
+  }
+
+  private static short win(int distance) {
+    return (short) (distance + 1);
+  }
+
+  private static short loss(int distance) {
+    return (short) -(distance + 1);
+  }
+
+  private void save(Path checkpoint, int distance) throws IOException {
+    Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+      out.writeLong(CHECKPOINT_MAGIC);
+      out.writeInt(material.ordinal());
+      out.writeInt(distance);
+      for (int entry = 0; entry < ENTRIES; entry++) {
+        out.writeInt(state.getPlain(entry));
+      }
+    }
+    Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Restores a checkpoint and returns the distance of the next pass. */
+  private int load(Path checkpoint) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint), 1 << 16))) {
+      if (in.readLong() != CHECKPOINT_MAGIC || in.readInt() != material.ordinal()) {
+        throw new IOException("Not a " + material + " checkpoint: " + checkpoint);
+      }
+      int distance = in.readInt();
+      for (int entry = 0; entry < ENTRIES; entry++) {
+        state.setPlain(entry, in.readInt());
+      }
+      return distance;
+    }
+  }
+
+  private void write(Path file) throws IOException {
+    int width = maxDistance() < Byte.MAX_VALUE ? 1 : 2;
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+      out.writeLong(Tablebase.MAGIC);
+      out.writeInt(material.getPiece().ordinal());
+      out.writeInt(width);
+      for (int entry = 0; entry < ENTRIES; entry++) {
+        short value = value(state.getPlain(entry));
+        int encoded = value == UNKNOWN || value == DRAWN ? 0
+            : value == INVALID ? (width == 1 ? Byte.MIN_VALUE : Short.MIN_VALUE)
+            : value;
+        if (width == 1) {
+          out.writeByte(encoded);
+        } else {
+          out.writeShort(encoded);
+        }
+      }
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,62 @@
+package org.robustov.chess.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random 64-bit keys for hashing board states. The seed is fixed so keys, and therefore
+ * stored hashes, are identical across runs and machines.
+ */
+public final class Zobrist {
+  private static final long SEED = 0x5EED_F0E7_C4E5_5L;
+  private static final int COLORS = Color.values().length;
+  private static final int TYPES = PieceType.values().length;
+
+  private static final long[] PIECES = new long[COLORS * TYPES * Bitboard.SQUARES];
+  private static final long[] UNMOVED = new long[Bitboard.SQUARES];
+  private static final long[] SIDE_TO_MOVE = new long[COLORS];
+  private static final long[] ELIMINATED = new long[COLORS];
+
+  static {
+    SplittableRandom random = new SplittableRandom(SEED);
+    for (int i = 0; i < PIECES.length; i++) {
+      PIECES[i] = random.nextLong();
+    }
+    for (int i = 0; i < UNMOVED.length; i++) {
+      UNMOVED[i] = random.nextLong();
+    }
+    for (int i = 0; i < COLORS; i++) {
+      SIDE_TO_MOVE[i] = random.nextLong();
+      ELIMINATED[i] = random.nextLong();
+    }
+  }
+
+  private Zobrist() {
+  }
+
+  public static long piece(Color color, PieceType type, int square) {
+    return PIECES[(color.ordinal() * TYPES + type.ordinal()) * Bitboard.SQUARES + square];
+  }
+
+  /** Only kings, rooks and pawns care whether they have moved (castling and double steps). */
+  public static boolean tracksMoved(PieceType type) {
+    return type == PieceType.KING || type == PieceType.ROOK || type == PieceType.PAWN;
+  }
+
+  public static long unmoved(int square) {
+    return UNMOVED[square];
+  }
+
+  /** Key of {@code piece} standing on {@code square}, including its moved flag. */
+  public static long of(Piece piece, int square) {
+    long key = piece(piece.getColor(), piece.getType(), square);
+    return !piece.hasMoved() && tracksMoved(piece.getType()) ? key ^ UNMOVED[square] : key;
+  }
+
+  public static long sideToMove(Color color) {
+    return SIDE_TO_MOVE[color.ordinal()];
+  }
+
+  public static long eliminated(Color color) {
+    return ELIMINATED[color.ordinal()];
+  }
+}
@@ -1,69 +1,27 @@
 package org.robustov.chess.pieces;
 
+import org.robustov.chess.model.Attacks;
 import org.robustov.chess.model.Board;
 import org.robustov.chess.model.Color;
+import org.robustov.chess.model.MoveList;
 import org.robustov.chess.model.Piece;
 import org.robustov.chess.model.PieceType;
 import org.robustov.chess.model.Position;
 
-import java.util.HashSet;
-import java.util.Set;
-
 public class Bishop extends Piece {
   public Bishop(Color color) {
     super(color, PieceType.BISHOP);
   }
 
   @Override
-  public Set<Position> getValidMoves(Position position, Board board) {
-    Set<Position> validMoves = new HashSet<>();
-    addDiagonalMoves(position, board, validMoves);
-    return validMoves;
-  }
-
-  private void addDiagonalMoves(Position position, Board board, Set<Position> moves) {
-    addDirectionMoves(position, board, moves, 1, 1);
-    addDirectionMoves(position, board, moves, 1, -1);
-    addDirectionMoves(position, board, moves, -1, 1);
-    addDirectionMoves(position, board, moves, -1, -1);
-  }
-
-  private void addDirectionMoves(Position position, Board board, Set<Position> moves, int fileDelta, int rankDelta) {
-    char currentFile = position.getFile();
-    int currentRank = position.getRank();
-
-    while (true) {
-      currentFile = (char) (currentFile + fileDelta);
-      currentRank = currentRank + rankDelta;
-
-      // Validate coordinates before creating Position
-      if (!isValidFile(currentFile) || !isValidRank(currentRank)) {
-        break;
-      }
-
-      Position target = new Position(currentFile, currentRank);
-
-      if (!board.isLegalPosition(target)) {
-        break;
-      }
-
-      if (board.hasPiece(target)) {
-        Piece piece = board.getPiece(target).get();
-        if (piece.getColor() != getColor()) {
-          moves.add(target);
-        }
-        break;
-      }
-
-      moves.add(target);
-    }
+  public void generateMoves(int square, Board board, MoveList moves) {
+    addSlidingMoves(square, board, moves, Attacks.NORTH_EAST, Attacks.SOUTH_EAST);
   }
 
-  private boolean isValidFile(char file) {
-    return file >= 'a' && file <= 'p';
-  }
-
-  private boolean isValidRank(int rank) {
-    return rank >= 1 && rank <= 16;
+  @Override
+  public boolean isValidMove(Position position, Position target, Board board) {
+    int to = target.index();
+    return Attacks.isSlidingAttack(position.index(), to, false, true, board.getBitboards())
+        && !board.getBitboards().isOccupiedBy(to, getColor());
   }
 }
@@ -1,13 +1,16 @@
 package org.robustov.chess.pieces;
 
+import org.robustov.chess.model.Attacks;
+import org.robustov.chess.model.Bitboard;
 import org.robustov.chess.model.Board;
 import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
 import org.robustov.chess.model.Piece;
+import org.robustov.chess.model.PieceBitboards;
 import org.robustov.chess.model.PieceType;
 import org.robustov.chess.model.Position;
 
-import java.util.HashSet;
-import java.util.Set;
 import java.util.Optional;
 
 public class King extends Piece {
@@ -16,52 +19,42 @@ public class King extends Piece {
   }
 
   @Override
-  public Set<Position> getValidMoves(Position position, Board board) {
-    Set<Position> validMoves = new HashSet<>();
-    char file = position.getFile();
-    int rank = position.getRank();
-
-    int[] fileOffsets = { -1, -1, -1, 0, 0, 1, 1, 1 };
-    int[] rankOffsets = { -1, 0, 1, -1, 1, -1, 0, 1 };
-
-    for (int i = 0; i < 8; i++) {
-      char targetFile = (char) (file + fileOffsets[i]);
-      int targetRank = rank + rankOffsets[i];
-
-      if (!isValidFile(targetFile) || !isValidRank(targetRank)) {
-        continue;
-      }
-
-      Position target = new Position(targetFile, targetRank);
-
-      if (!board.isLegalPosition(target)) {
-        continue;
-      }
+  public void generateMoves(int square, Board board, MoveList moves) {
+    PieceBitboards bitboards = board.getBitboards();
 
-      if (!board.hasPiece(target) || board.getPiece(target).get().getColor() != getColor()) {
-        validMoves.add(target);
-      }
+    for (int word = 0; word < Bitboard.WORDS; word++) {
+      long own = bitboards.color(getColor(), word);
+      addMoves(moves, square, word, Attacks.king(square, word) & ~own, bitboards.occupied(word) & ~own);
     }
 
-    addCastlingMoves(position, board, validMoves);
+    addCastlingMoves(square, board, moves);
+  }
 
-    return validMoves;
+  @Override
+  public boolean isValidMove(Position position, Position target, Board board) {
+    int to = target.index();
+    if (Attacks.isKingAttack(position.index(), to)) {
+      return !board.getBitboards().isOccupiedBy(to, getColor());
+    }
+    if (hasMoved() || target.getRank() != position.getRank()
+        || Math.abs(target.getFile() - position.getFile()) != 2) {
+      return false;
+    }
+    return target.getFile() > position.getFile() ? canCastleKingside(position, board)
+        : canCastleQueenside(position, board);
   }
 
-  private void addCastlingMoves(Position position, Board board, Set<Position> validMoves) {
+  private void addCastlingMoves(int square, Board board, MoveList moves) {
     if (hasMoved())
       return;
 
+    Position position = Position.of(square);
     if (canCastleKingside(position, board)) {
-      char kingFile = position.getFile();
-      int rank = position.getRank();
-      validMoves.add(new Position((char) (kingFile + 2), rank));
+      moves.add(Move.of(square, square + 2, Move.CASTLING));
     }
 
     if (canCastleQueenside(position, board)) {
-      char kingFile = position.getFile();
-      int rank = position.getRank();
-      validMoves.add(new Position((char) (kingFile - 2), rank));
+      moves.add(Move.of(square, square - 2, Move.CASTLING));
     }
   }
 
@@ -77,8 +70,8 @@ public class King extends Piece {
       return false;
     }
 
-    Position firstSquare = new Position(f1, rank);
-    Position secondSquare = new Position(f2, rank);
+    Position firstSquare = Position.of(f1, rank);
+    Position secondSquare = Position.of(f2, rank);
 
     if (!isValidPosition(firstSquare, board) || !isValidPosition(secondSquare, board)) {
       return false;
@@ -88,7 +81,7 @@ public class King extends Piece {
       return false;
     }
 
-    Position rookPosition = new Position(rookFile, rank);
+    Position rookPosition = Position.of(rookFile, rank);
     if (!isValidPosition(rookPosition, board) || !board.hasPiece(rookPosition)) {
       return false;
     }
@@ -99,7 +92,7 @@ public class King extends Piece {
     }
 
     Rook rook = (Rook) rookCandidate.get();
-    if (rook.hasMoved()) {
+    if (rook.getColor() != getColor() || rook.hasMoved()) {
       return false;
     }
 
@@ -120,9 +113,9 @@ public class King extends Piece {
       return false;
     }
 
-    Position firstSquare = new Position(f1, rank);
-    Position secondSquare = new Position(f2, rank);
-    Position thirdSquare = new Position(f3, rank);
+    Position firstSquare = Position.of(f1, rank);
+    Position secondSquare = Position.of(f2, rank);
+    Position thirdSquare = Position.of(f3, rank);
 
     if (!isValidPosition(firstSquare, board) || !isValidPosition(secondSquare, board) ||
         !isValidPosition(thirdSquare, board)) {
@@ -133,7 +126,7 @@ public class King extends Piece {
       return false;
     }
 
-    Position rookPosition = new Position(rookFile, rank);
+    Position rookPosition = Position.of(rookFile, rank);
     if (!isValidPosition(rookPosition, board) || !board.hasPiece(rookPosition)) {
       return false;
     }
@@ -144,7 +137,7 @@ public class King extends Piece {
     }
 
     Rook rook = (Rook) rookCandidate.get();
-    if (rook.hasMoved()) {
+    if (rook.getColor() != getColor() || rook.hasMoved()) {
       return false;
     }
 
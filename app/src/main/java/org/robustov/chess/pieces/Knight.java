@@ -1,57 +1,34 @@
 package org.robustov.chess.pieces;
 
+import org.robustov.chess.model.Attacks;
+import org.robustov.chess.model.Bitboard;
 import org.robustov.chess.model.Board;
 import org.robustov.chess.model.Color;
+import org.robustov.chess.model.MoveList;
 import org.robustov.chess.model.Piece;
+import org.robustov.chess.model.PieceBitboards;
 import org.robustov.chess.model.PieceType;
 import org.robustov.chess.model.Position;
 
-import java.util.HashSet;
-import java.util.Set;
-
 public class Knight extends Piece {
   public Knight(Color color) {
     super(color, PieceType.KNIGHT);
   }
 
   @Override
-  public Set<Position> getValidMoves(Position position, Board board) {
-    Set<Position> validMoves = new HashSet<>();
-    char file = position.getFile();
-    int rank = position.getRank();
-
-    int[][] moves = {
-        { 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 },
-        { 1, 2 }, { 1, -2 }, { -1, 2 }, { -1, -2 }
-    };
-
-    for (int[] move : moves) {
-      char targetFile = (char) (file + move[0]);
-      int targetRank = rank + move[1];
-
-      if (!isValidFile(targetFile) || !isValidRank(targetRank)) {
-        continue;
-      }
-
-      Position target = new Position(targetFile, targetRank);
+  public void generateMoves(int square, Board board, MoveList moves) {
+    PieceBitboards bitboards = board.getBitboards();
 
-      if (!board.isLegalPosition(target)) {
-        continue;
-      }
-
-      if (!board.hasPiece(target) || board.getPiece(target).get().getColor() != getColor()) {
-        validMoves.add(target);
-      }
+    for (int word = 0; word < Bitboard.WORDS; word++) {
+      long own = bitboards.color(getColor(), word);
+      addMoves(moves, square, word, Attacks.knight(square, word) & ~own, bitboards.occupied(word) & ~own);
     }
-
-    return validMoves;
   }
 
-  private boolean isValidFile(char file) {
-    return file >= 'a' && file <= 'p';
-  }
-
-  private boolean isValidRank(int rank) {
-    return rank >= 1 && rank <= 16;
+  @Override
+  public boolean isValidMove(Position position, Position target, Board board) {
+    int to = target.index();
+    return Attacks.isKnightAttack(position.index(), to)
+        && !board.getBitboards().isOccupiedBy(to, getColor());
   }
 }
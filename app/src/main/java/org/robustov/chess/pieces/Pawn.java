@@ -1,97 +1,71 @@
 package org.robustov.chess.pieces;
 
+import org.robustov.chess.model.Attacks;
+import org.robustov.chess.model.Bitboard;
 import org.robustov.chess.model.Board;
 import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
 import org.robustov.chess.model.Piece;
+import org.robustov.chess.model.PieceBitboards;
 import org.robustov.chess.model.PieceType;
 import org.robustov.chess.model.Position;
 
-import java.util.HashSet;
-import java.util.Set;
-
 public class Pawn extends Piece {
   public Pawn(Color color) {
     super(color, PieceType.PAWN);
   }
 
   @Override
-  public Set<Position> getValidMoves(Position position, Board board) {
-    Set<Position> validMoves = new HashSet<>();
-    int[] direction = getMovementDirection();
-
-    char file = position.getFile();
-    int rank = position.getRank();
+  public void generateMoves(int square, Board board, MoveList moves) {
+    PieceBitboards bitboards = board.getBitboards();
 
-    Position forward = new Position((char) (file + direction[0]), rank + direction[1]);
-    if (isValidPosition(forward, board) && !board.hasPiece(forward)) {
-      validMoves.add(forward);
+    int forward = Attacks.pawnPush(getColor(), square);
+    if (forward >= 0 && !bitboards.isOccupied(forward)) {
+      moves.add(Move.of(square, forward, 0));
 
       if (!hasMoved()) {
-        Position doubleForward = new Position((char) (file + 2 * direction[0]), rank + 2 * direction[1]);
-        if (isValidPosition(doubleForward, board) && !board.hasPiece(doubleForward)) {
-          validMoves.add(doubleForward);
+        int doubleForward = Attacks.pawnDoublePush(getColor(), square);
+        if (doubleForward >= 0 && !bitboards.isOccupied(doubleForward)) {
+          moves.add(Move.of(square, doubleForward, Move.DOUBLE_PUSH));
         }
       }
     }
 
-    if (movesVertically()) {
-      Position captureRight = new Position((char) (file + 1), rank + direction[1]);
-      Position captureLeft = new Position((char) (file - 1), rank + direction[1]);
-
-      if (isValidPosition(captureRight, board) && hasEnemyPiece(captureRight, board)) {
-        validMoves.add(captureRight);
-      }
-
-      if (isValidPosition(captureLeft, board) && hasEnemyPiece(captureLeft, board)) {
-        validMoves.add(captureLeft);
-      }
-    } else {
-      Position captureUp = new Position((char) (file + direction[0]), rank + 1);
-      Position captureDown = new Position((char) (file + direction[0]), rank - 1);
+    for (int word = 0; word < Bitboard.WORDS; word++) {
+      long enemies = bitboards.occupied(word) & ~bitboards.color(getColor(), word);
+      addMoves(moves, square, word, Attacks.pawnCaptures(getColor(), square, word) & enemies, enemies);
+    }
+  }
 
-      if (isValidPosition(captureUp, board) && hasEnemyPiece(captureUp, board)) {
-        validMoves.add(captureUp);
-      }
+  @Override
+  public boolean isValidMove(Position position, Position target, Board board) {
+    int square = position.index();
+    int to = target.index();
+    PieceBitboards bitboards = board.getBitboards();
 
-      if (isValidPosition(captureDown, board) && hasEnemyPiece(captureDown, board)) {
-        validMoves.add(captureDown);
-      }
+    if (Attacks.isPawnCapture(getColor(), square, to)) {
+      return bitboards.isOccupied(to) && !bitboards.isOccupiedBy(to, getColor());
     }
 
-    return validMoves;
+    int forward = Attacks.pawnPush(getColor(), square);
+    if (forward < 0 || bitboards.isOccupied(forward)) {
+      return false;
+    }
+    return to == forward
+        || (!hasMoved() && to == Attacks.pawnDoublePush(getColor(), square) && !bitboards.isOccupied(to));
   }
 
-  private boolean movesVertically() {
-    return getColor() == Color.RED || getColor() == Color.GREEN;
+  public static boolean movesVertically(Color color) {
+    return color == Color.RED || color == Color.GREEN;
   }
 
-  private int[] getMovementDirection() {
-    return switch (getColor()) {
+  public static int[] getMovementDirection(Color color) {
+    return switch (color) {
       case YELLOW -> new int[] { 1, 0 };
       case BLUE -> new int[] { -1, 0 };
       case RED -> new int[] { 0, -1 };
       case GREEN -> new int[] { 0, 1 };
     };
   }
-
-  private boolean hasEnemyPiece(Position position, Board board) {
-    if (!board.hasPiece(position)) {
-      return false;
-    }
-    Piece piece = board.getPiece(position).get();
-    return piece.getColor() != getColor();
-  }
-
-  private boolean isValidPosition(Position position, Board board) {
-    return isValidFile(position.getFile()) && isValidRank(position.getRank()) &&
-        board.isLegalPosition(position);
-  }
-
-  private boolean isValidFile(char file) {
-    return file >= 'a' && file <= 'p';
-  }
-
-  private boolean isValidRank(int rank) {
-    return rank >= 1 && rank <= 16;
-  }
 }
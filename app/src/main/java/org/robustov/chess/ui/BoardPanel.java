@@ -36,7 +36,7 @@ public class BoardPanel extends JPanel {
         if (col >= 0 && col < 16 && row >= 0 && row < 16) {
           char file = (char) ('a' + col);
           int rank = row + 1;
-          Position position = new Position(file, rank);
+          Position position = Position.of(file, rank);
 
           if (!board.isLegalPosition(position)) {
             return;
@@ -47,7 +47,7 @@ public class BoardPanel extends JPanel {
               Piece piece = board.getPiece(position).get();
               if (piece.getColor() == board.getCurrentPlayer()) {
                 selectedPosition = position;
-                validMoves = piece.getValidMoves(position, board);
+                validMoves = board.getLegalMoves(position);
                 repaint();
               }
             }
@@ -93,7 +93,7 @@ public class BoardPanel extends JPanel {
       for (int col = 0; col < 16; col++) {
         char file = (char) ('a' + col);
         int rank = 16 - row;
-        Position position = new Position(file, rank);
+        Position position = Position.of(file, rank);
         Square square = board.getSquare(position);
 
         int x = col * squareSize;
@@ -1,7 +1,13 @@
 package org.robustov.chess.ui;
 
+import org.robustov.chess.engine.OpeningBook;
+import org.robustov.chess.engine.ParanoidSearch;
+import org.robustov.chess.engine.SearchLimits;
+import org.robustov.chess.engine.SearchResult;
 import org.robustov.chess.model.Board;
 import org.robustov.chess.model.Color;
+import org.robustov.chess.model.GameStatus;
+import org.robustov.chess.model.Move;
 import org.robustov.chess.model.Position;
 
 import javax.swing.*;
@@ -9,13 +15,17 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class ChessFrame extends JFrame {
+  private static final long ENGINE_TIME_MILLIS = 500;
+
   private Board board;
   private final BoardPanel boardPanel;
   private boolean gameOver = false;
+  private boolean engineThinking = false;
+  private OpeningBook book;
 
   public ChessFrame(Board board) {
     this.board = board;
@@ -42,6 +52,18 @@ public class ChessFrame extends JFrame {
     restartItem.addActionListener(e -> restartGame());
     gameMenu.add(restartItem);
 
+    JMenuItem undoItem = new JMenuItem("Отменить ход");
+    undoItem.addActionListener(e -> undoMove());
+    gameMenu.add(undoItem);
+
+    JMenuItem engineItem = new JMenuItem("Ход компьютера");
+    engineItem.addActionListener(e -> playEngineMove());
+    gameMenu.add(engineItem);
+
+    JMenuItem bookItem = new JMenuItem("Подсказка из книги");
+    bookItem.addActionListener(e -> showBookHint());
+    gameMenu.add(bookItem);
+
     JMenuItem exitItem = new JMenuItem("Выход");
     exitItem.addActionListener(e -> System.exit(0));
     gameMenu.add(exitItem);
@@ -76,18 +98,89 @@ public class ChessFrame extends JFrame {
     }
   }
 
-  private void checkGameEnd() {
-    Set<Color> activePlayers = new HashSet<>();
-    for (Color color : Color.values()) {
-      if (board.isPlayerActive(color)) {
-        activePlayers.add(color);
+  /** Lets the engine choose the move of the current player; the search runs on a copy of the board. */
+  private void playEngineMove() {
+    if (gameOver) {
+      showGameOverAlreadyDialog();
+      return;
+    }
+    if (engineThinking) {
+      return;
+    }
+    engineThinking = true;
+    Board searched = board;
+    long key = board.getZobristKey();
+    Board copy = board.copy();
+    new SwingWorker<SearchResult, Void>() {
+      @Override
+      protected SearchResult doInBackground() {
+        return new ParanoidSearch().search(copy, SearchLimits.time(ENGINE_TIME_MILLIS));
+      }
+
+      @Override
+      protected void done() {
+        engineThinking = false;
+        try {
+          SearchResult result = get();
+          // The position may have changed while the engine was thinking.
+          if (searched != board || key != board.getZobristKey() || result.getBestMove() == Move.NONE) {
+            return;
+          }
+          handleMove(Position.of(Move.from(result.getBestMove())), Position.of(Move.to(result.getBestMove())));
+        } catch (InterruptedException | ExecutionException e) {
+          JOptionPane.showMessageDialog(ChessFrame.this,
+              "Ошибка поиска хода: " + e.getMessage(),
+              "Ход компьютера",
+              JOptionPane.ERROR_MESSAGE);
+        }
+      }
+    }.execute();
+  }
+
+  /** Opening book for move hints; without one the hint menu says so. */
+  public void setOpeningBook(OpeningBook book) {
+    this.book = book;
+  }
+
+  private void showBookHint() {
+    String message;
+    if (book == null) {
+      message = "Книга дебютов не загружена.\nЗапустите программу с параметром --book <файл>.";
+    } else {
+      List<OpeningBook.BookMove> moves = book.lookup(board);
+      long total = moves.stream().mapToLong(OpeningBook.BookMove::weight).sum();
+      StringBuilder text = new StringBuilder();
+      for (OpeningBook.BookMove move : moves) {
+        text.append(String.format("%s — %.0f%% (%d)%n",
+            Move.toString(move.move()), 100.0 * move.weight() / total, move.weight()));
       }
+      message = moves.isEmpty() ? "Позиции нет в книге дебютов." : "Ходы из книги для " + board.getCurrentPlayer() + ":\n" + text;
     }
+    JOptionPane.showMessageDialog(this,
+        message,
+        "Подсказка из книги",
+        JOptionPane.INFORMATION_MESSAGE);
+  }
 
-    if (activePlayers.size() <= 1) {
+  private void undoMove() {
+    if (!board.canUnmakeMove()) {
+      JOptionPane.showMessageDialog(this,
+          "Нет ходов для отмены.",
+          "Отмена хода",
+          JOptionPane.INFORMATION_MESSAGE);
+      return;
+    }
+
+    board.unmakeMove();
+    gameOver = false;
+    boardPanel.repaint();
+  }
+
+  private void checkGameEnd() {
+    GameStatus status = board.getGameStatus();
+    if (status.isGameOver()) {
       gameOver = true;
-      Color winner = activePlayers.isEmpty() ? null : activePlayers.iterator().next();
-      showGameOverDialog(winner);
+      showGameOverDialog(status.getWinner());
     }
   }
 
@@ -0,0 +1,40 @@
+package org.robustov;
+
+import org.junit.jupiter.api.Test;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.MoveList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+  @Test
+  void countsMatchKnownNodeCounts() throws IOException {
+    assertEquals(60099, new Perft(3, null).perft(load("game.json"), 4));
+    assertEquals(30520, new Perft(3, null).perft(load("mate.json"), 4));
+    assertEquals(1553, new Perft(2, null).perft(load("game.json"), 1));
+  }
+
+  @Test
+  void hashTableKeepsCounts() throws IOException {
+    assertEquals(60099, new Perft(3, new Perft.PerftTable(1)).perft(load("game.json"), 4));
+  }
+
+  @Test
+  void divideSumsToTotal() throws IOException {
+    Board board = load("mate.json");
+    MoveList rootMoves = new MoveList();
+    board.generateLegalMoves(board.getCurrentPlayer(), rootMoves);
+    long[] counts = new Perft(3, null).divide(board, rootMoves, 2);
+    assertEquals(rootMoves.size(), counts.length);
+    assertEquals(30520, Arrays.stream(counts).sum());
+  }
+
+  private static Board load(String name) throws IOException {
+    Board board = new Board();
+    board.loadFile(Path.of("..", name));
+    return board;
+  }
+}
@@ -0,0 +1,42 @@
+package org.robustov.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineProtocolTest {
+  @Test
+  void badMoveKeepsPreviousPosition() throws IOException {
+    List<String> lines = run("position startpos", "d",
+        "position startpos moves b1-c3 zz", "d",
+        "position startpos moves b1-c3 b1-c3", "d");
+    assertEquals("info string error: illegal move: zz", lines.get(1));
+    assertEquals("info string error: illegal move: b1-c3", lines.get(3));
+    assertEquals(lines.get(0), lines.get(2));
+    assertEquals(lines.get(0), lines.get(4));
+  }
+
+  @Test
+  void goAnswersWithBestmoveWhenOnlyTheSideToMoveIsLeft() throws IOException {
+    List<String> lines = run("position fen 16/16/16/16/16/16/16/16/4yk1yr9/16/16/16/16/16/16/16 y",
+        "go depth 3");
+    String last = lines.get(lines.size() - 1);
+    assertTrue(last.startsWith("bestmove ") && !last.equals("bestmove none"), last);
+  }
+
+  private static List<String> run(String... commands) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    BufferedReader in = new BufferedReader(new StringReader(String.join("\n", commands)));
+    PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+    new EngineProtocol(in, out, Path.of("..", "starting_position.json"), 1, 1).run();
+    return output.toString(StandardCharsets.UTF_8).lines().toList();
+  }
+}
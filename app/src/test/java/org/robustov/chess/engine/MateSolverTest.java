@@ -0,0 +1,56 @@
+package org.robustov.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Color;
+import org.robustov.chess.model.MoveList;
+import org.robustov.chess.model.Position;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MateSolverTest {
+  @Test
+  void solvesMatePuzzleInTwo() throws IOException {
+    Board board = new Board();
+    board.loadFile(Path.of("..", "mate.json"));
+
+    MateResult none = new MateSolver(1, 1).solve(board, Color.RED, 1);
+    assertFalse(none.isSolved());
+    // Every root move is played and counted.
+    assertEquals(101, none.getNodes());
+
+    // One thread tries root moves in generation order; e6-k6 is the first that works.
+    MateResult result = new MateSolver(1, 1).solve(board, Color.RED, 2);
+    assertTrue(result.toString().startsWith("RED eliminated in 2: e6-k6"), result.toString());
+
+    // Several threads may report another mating first move, such as e5-l5.
+    MateResult parallel = new MateSolver(4, 1).solve(board, Color.RED, 3);
+    assertTrue(parallel.isSolved());
+    assertEquals(2, parallel.getMoves());
+
+    Color attacker = board.getCurrentPlayer();
+    board.makeMove(Position.of('e', 5), Position.of('l', 5));
+    assertTrue(matesNextMove(board, attacker, new MateSolver(1, 1)));
+  }
+
+  /** Whether every line of replies leaves the attacker a move that eliminates Red. */
+  private static boolean matesNextMove(Board board, Color attacker, MateSolver solver) {
+    if (board.isEliminated(Color.RED)) {
+      return true;
+    }
+    if (board.getCurrentPlayer() == attacker) {
+      return solver.solve(board, Color.RED, 1).isSolved();
+    }
+    MoveList replies = new MoveList();
+    board.generateLegalMoves(board.getCurrentPlayer(), replies);
+    boolean mated = !replies.isEmpty();
+    for (int i = 0; i < replies.size() && mated; i++) {
+      board.makeMove(replies.get(i));
+      mated = matesNextMove(board, attacker, solver);
+      board.unmakeMove();
+    }
+    return mated;
+  }
+}
@@ -0,0 +1,64 @@
+package org.robustov.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.MoveList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+  @Test
+  void lookupFindsWrittenMoves() throws IOException {
+    Board board = new Board();
+    board.loadFile(Path.of("..", "game.json"));
+    MoveList moves = new MoveList();
+    board.generateLegalMoves(board.getCurrentPlayer(), moves);
+    int first = moves.get(0);
+    int second = moves.get(1);
+
+    OpeningBookBuilder builder = new OpeningBookBuilder();
+    builder.add(board, second);
+    builder.add(board, first);
+    builder.add(board, first);
+    builder.add(board.getZobristKey(), first, 2);
+    // A move that cannot be played here, as if from a colliding position.
+    int king = board.getKingSquare(board.getCurrentPlayer());
+    builder.add(board.getZobristKey(), Move.of(king, king, 0), 9);
+    SplittableRandom random = new SplittableRandom(1);
+    for (int i = 0; i < 1000; i++) {
+      builder.add(random.nextLong(), first, 1);
+    }
+    Board after = board.copy();
+    after.makeMove(first);
+    MoveList replies = new MoveList();
+    after.generateLegalMoves(after.getCurrentPlayer(), replies);
+    builder.add(after, replies.get(0));
+
+    Path file = Files.createTempFile("book", ".fcbook");
+    try {
+      builder.write(file);
+      try (OpeningBook book = OpeningBook.open(file)) {
+        assertEquals(1004, book.size());
+        assertEquals(List.of(new OpeningBook.BookMove(first, 4), new OpeningBook.BookMove(second, 1)),
+            book.lookup(board));
+        assertEquals(List.of(new OpeningBook.BookMove(replies.get(0), 1)), book.lookup(after));
+
+        int chosen = book.choose(board, random);
+        assertTrue(chosen == first || chosen == second);
+
+        Board missing = board.copy();
+        missing.makeMove(second);
+        assertTrue(book.lookup(missing).isEmpty());
+        assertEquals(Move.NONE, book.choose(missing, random));
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
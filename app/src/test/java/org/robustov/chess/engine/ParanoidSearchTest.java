@@ -0,0 +1,48 @@
+package org.robustov.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import org.robustov.chess.model.Board;
+import org.robustov.chess.model.Color;
+import org.robustov.chess.model.Move;
+import org.robustov.chess.model.Position;
+import org.robustov.chess.pieces.King;
+import org.robustov.chess.pieces.Queen;
+import org.robustov.chess.pieces.Rook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParanoidSearchTest {
+  @Test
+  void lonePlayerGetsAMoveAndAWinningScore() {
+    Board board = new Board();
+    board.loadNotation("16/16/16/16/16/16/16/16/4yk1yr9/16/16/16/16/16/16/16 y");
+    SearchResult result = new ParanoidSearch().search(board, new SearchLimits(3, 0, 0));
+    assertNotEquals(Move.NONE, result.getBestMove());
+    assertEquals(ParanoidSearch.MATE, result.getScore());
+    assertNotEquals(Move.NONE, new ParallelSearch(2, 1).search(board, new SearchLimits(3, 0, 0)).getBestMove());
+  }
+
+  @Test
+  void capturesHangingQueen() {
+    Board board = new Board();
+    board.placePiece(new King(Color.YELLOW), Position.of('d', 1));
+    board.placePiece(new King(Color.RED), Position.of('d', 13));
+    board.placePiece(new Rook(Color.YELLOW), Position.of('h', 4));
+    board.placePiece(new Queen(Color.RED), Position.of('h', 10));
+    SearchResult result = new ParanoidSearch().search(board, SearchLimits.depth(3));
+    assertEquals("h4xh10", Move.toString(result.getBestMove()));
+    assertTrue(result.getScore() > 0);
+  }
+
+  @Test
+  void findsMateInOne() {
+    Board board = new Board();
+    board.placePiece(new King(Color.YELLOW), Position.of('d', 1));
+    board.placePiece(new King(Color.RED), Position.of('p', 4));
+    board.placePiece(new Queen(Color.YELLOW), Position.of('m', 2));
+    board.placePiece(new Queen(Color.YELLOW), Position.of('l', 6));
+    SearchResult result = new ParanoidSearch().search(board, SearchLimits.depth(4));
+    assertTrue(ParanoidSearch.isMateScore(result.getScore()));
+    assertEquals(ParanoidSearch.MATE - 1, result.getScore());
+  }
+}
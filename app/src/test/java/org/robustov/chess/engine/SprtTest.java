@@ -0,0 +1,48 @@
+package org.robustov.chess.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SprtTest {
+  @Test
+  void strongerSideAcceptsH1() {
+    Sprt sprt = new Sprt(0, 20, 0.05, 0.05);
+    int games = 0;
+    while (sprt.getDecision() == Sprt.Decision.CONTINUE && games < 10_000) {
+      // Seven wins in ten, about +150 Elo.
+      sprt.add(games % 10 < 7 ? 1 : 0);
+      games++;
+    }
+    assertEquals(Sprt.Decision.ACCEPT_H1, sprt.getDecision());
+    assertTrue(sprt.getLlr() >= sprt.getUpperBound());
+    assertTrue(sprt.getElo() > 20, "elo " + sprt.getElo());
+  }
+
+  @Test
+  void evenScoresAcceptH0() {
+    Sprt sprt = new Sprt(0, 20, 0.05, 0.05);
+    int games = 0;
+    while (sprt.getDecision() == Sprt.Decision.CONTINUE && games < 10_000) {
+      sprt.add(games % 2);
+      games++;
+    }
+    assertEquals(Sprt.Decision.ACCEPT_H0, sprt.getDecision());
+    assertTrue(sprt.getLlr() <= sprt.getLowerBound());
+    assertEquals(0.5, sprt.getMean(), 0.01);
+  }
+
+  @Test
+  void continuesOnFewGamesAndRejectsBadInput() {
+    Sprt sprt = new Sprt(0, 20, 0.05, 0.05);
+    sprt.add(1);
+    sprt.add(0.5);
+    sprt.add(0);
+    assertEquals(Sprt.Decision.CONTINUE, sprt.getDecision());
+    assertEquals(Math.log(0.05 / 0.95), sprt.getLowerBound(), 1e-12);
+    assertEquals(Math.log(0.95 / 0.05), sprt.getUpperBound(), 1e-12);
+    assertThrows(IllegalArgumentException.class, () -> sprt.add(1.5));
+    assertThrows(IllegalArgumentException.class, () -> new Sprt(20, 0, 0.05, 0.05));
+    assertThrows(IllegalArgumentException.class, () -> new Sprt(0, 20, 0, 0.05));
+  }
+}
@@ -0,0 +1,118 @@
+package org.robustov.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+  // Keys below 2^32 whose low 20 bits are zero all fall into the first bucket.
+  private static final long K1 = 1L << 20;
+  private static final long K2 = 2L << 20;
+  private static final long K3 = 3L << 20;
+  private static final long K4 = 4L << 20;
+  private static final long K5 = 5L << 20;
+  private static final long K6 = 6L << 20;
+
+  @Test
+  void storedEntryRoundTrips() {
+    TranspositionTable table = new TranspositionTable(1);
+    table.store(0x1234_5678_9ABC_DEF0L, 0x4_1234, -ParanoidSearch.MATE + 7, 12, TranspositionTable.UPPER);
+    long data = table.probe(0x1234_5678_9ABC_DEF0L);
+    assertEquals(0x4_1234, TranspositionTable.move(data));
+    assertEquals(-ParanoidSearch.MATE + 7, TranspositionTable.score(data));
+    assertEquals(12, TranspositionTable.depth(data));
+    assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(data));
+    assertEquals(0, table.probe(0x1234_5678_9ABC_DEF1L));
+  }
+
+  @Test
+  void sameKeyOverwriteKeepsMove() {
+    TranspositionTable table = new TranspositionTable(1);
+    table.store(K1, 77, 10, 8, TranspositionTable.LOWER);
+    table.store(K1, 0, -20, 3, TranspositionTable.UPPER);
+    long data = table.probe(K1);
+    assertEquals(77, TranspositionTable.move(data));
+    assertEquals(-20, TranspositionTable.score(data));
+    assertEquals(3, TranspositionTable.depth(data));
+
+    table.store(K1, 91, 5, 4, TranspositionTable.EXACT);
+    assertEquals(91, TranspositionTable.move(table.probe(K1)));
+  }
+
+  @Test
+  void replacesOldestThenShallowest() {
+    TranspositionTable table = new TranspositionTable(1);
+    table.store(K1, 1, 0, 20, TranspositionTable.EXACT);
+    table.store(K2, 2, 0, 5, TranspositionTable.EXACT);
+    table.store(K3, 3, 0, 20, TranspositionTable.EXACT);
+    table.store(K4, 4, 0, 20, TranspositionTable.EXACT);
+    table.newSearch();
+    table.store(K3, 3, 0, 1, TranspositionTable.EXACT);
+    table.store(K4, 4, 0, 1, TranspositionTable.EXACT);
+
+    table.store(K5, 5, 0, 1, TranspositionTable.EXACT);
+    assertEquals(0, table.probe(K2));
+    assertNotEquals(0, table.probe(K1));
+
+    // An old deep entry goes before shallow entries of the current search.
+    table.store(K6, 6, 0, 1, TranspositionTable.EXACT);
+    assertEquals(0, table.probe(K1));
+    for (long key : new long[] {K3, K4, K5, K6}) {
+      assertNotEquals(0, table.probe(key));
+    }
+  }
+
+  @Test
+  void concurrentStoresNeverAnswerForAnotherKey() throws InterruptedException {
+    TranspositionTable table = new TranspositionTable(1);
+    AtomicLong wrong = new AtomicLong();
+    AtomicLong hits = new AtomicLong();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      long seed = t;
+      threads[t] = new Thread(() -> {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < 500_000; i++) {
+          // Few enough keys that threads keep overwriting each other's buckets.
+          long key = mix(random.nextInt(200_000));
+          long data = table.probe(key);
+          if (data != 0) {
+            hits.incrementAndGet();
+            if (TranspositionTable.move(data) != move(key) || TranspositionTable.score(data) != score(key)
+                || TranspositionTable.depth(data) != depth(key)) {
+              wrong.incrementAndGet();
+            }
+          } else {
+            table.store(key, move(key), score(key), depth(key), TranspositionTable.EXACT);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(hits.get() > 0);
+    assertEquals(0, wrong.get());
+  }
+
+  private static long mix(long value) {
+    long z = (value + 1) * 0x9E37_79B9_7F4A_7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+    return z ^ (z >>> 31);
+  }
+
+  private static int move(long key) {
+    return (int) (key & 0x7_FFFF);
+  }
+
+  private static int score(long key) {
+    return (int) (key >> 40) % 1_000_000;
+  }
+
+  private static int depth(long key) {
+    return (int) (key >>> 20) & 0xFF;
+  }
+}
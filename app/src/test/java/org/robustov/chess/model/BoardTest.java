@@ -0,0 +1,177 @@
+package org.robustov.chess.model;
+
+import org.junit.jupiter.api.Test;
+import org.robustov.chess.pieces.Bishop;
+import org.robustov.chess.pieces.King;
+import org.robustov.chess.pieces.Pawn;
+import org.robustov.chess.pieces.Queen;
+import org.robustov.chess.pieces.Rook;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardTest {
+  @Test
+  void unmakeMoveRestoresCapture() {
+    Board board = kingsAndRook(new Pawn(Color.RED), Position.of('h', 10));
+    String before = board.savePosition();
+
+    board.movePiece(Position.of('h', 4), Position.of('h', 10));
+    assertEquals(PieceType.ROOK, board.getPiece(Position.of('h', 10)).orElseThrow().getType());
+    assertFalse(board.hasPiece(Position.of('h', 4)));
+    assertEquals(Color.RED, board.getCurrentPlayer());
+
+    board.unmakeMove();
+    assertEquals(before, board.savePosition());
+    assertFalse(board.canUnmakeMove());
+  }
+
+  @Test
+  void castlingMovesRookAndIsUndone() {
+    Board board = new Board();
+    board.placePiece(new King(Color.YELLOW), Position.of('d', 1));
+    board.placePiece(new King(Color.RED), Position.of('d', 13));
+    board.placePiece(new Rook(Color.RED), Position.of('p', 13));
+    board.placePiece(new Pawn(Color.YELLOW), Position.of('c', 5));
+    String before = board.savePosition();
+
+    board.makeMove(Position.of('c', 5), Position.of('d', 5));
+    board.makeMove(Position.of('d', 13), Position.of('f', 13));
+    assertEquals(PieceType.ROOK, board.getPiece(Position.of('e', 13)).orElseThrow().getType());
+    assertFalse(board.hasPiece(Position.of('p', 13)));
+
+    board.unmakeMove();
+    board.unmakeMove();
+    assertEquals(before, board.savePosition());
+  }
+
+  @Test
+  void zobristKeyIgnoresMoveOrderAndIsRestoredByUnmake() {
+    Board board = kingsAndRook(new Rook(Color.RED), Position.of('k', 10));
+    long start = board.getZobristKey();
+    assertEquals(board.computeZobristKey(), start);
+
+    board.makeMove(Position.of('h', 4), Position.of('h', 5));
+    board.makeMove(Position.of('k', 10), Position.of('k', 11));
+    board.makeMove(Position.of('h', 5), Position.of('h', 6));
+    board.makeMove(Position.of('k', 11), Position.of('k', 12));
+    long slow = board.getZobristKey();
+    assertEquals(board.computeZobristKey(), slow);
+    assertNotEquals(start, slow);
+
+    for (int i = 0; i < 4; i++) {
+      board.unmakeMove();
+    }
+    assertEquals(start, board.getZobristKey());
+
+    board.makeMove(Position.of('h', 4), Position.of('h', 6));
+    board.makeMove(Position.of('k', 10), Position.of('k', 12));
+    assertEquals(slow, board.getZobristKey());
+
+    board.makeMove(Position.of('d', 1), Position.of('d', 2));
+    board.makeMove(Position.of('k', 12), Position.of('k', 11));
+    board.makeMove(Position.of('d', 2), Position.of('d', 1));
+    board.makeMove(Position.of('k', 11), Position.of('k', 12));
+    // Same squares and side to move, but the yellow king has lost its castling rights.
+    assertNotEquals(slow, board.getZobristKey());
+  }
+
+  @Test
+  void scoreFollowsCaptureAndUnmake() {
+    Board board = kingsAndRook(new Pawn(Color.RED), Position.of('h', 10));
+    int yellow = board.getScore(Color.YELLOW);
+    int red = board.getScore(Color.RED);
+    assertEquals(board.computeScore(Color.YELLOW), yellow);
+    assertEquals(board.computeScore(Color.RED), red);
+
+    board.makeMove(Position.of('h', 4), Position.of('h', 10));
+    int pawn = Evaluation.score(Color.RED, PieceType.PAWN, Position.of('h', 10).index());
+    assertEquals(red - pawn, board.getScore(Color.RED));
+    assertEquals(board.computeScore(Color.YELLOW), board.getScore(Color.YELLOW));
+
+    board.unmakeMove();
+    assertEquals(yellow, board.getScore(Color.YELLOW));
+    assertEquals(red, board.getScore(Color.RED));
+  }
+
+  @Test
+  void seeCountsDefendersAndXRays() {
+    Board board = kingsAndRook(new Pawn(Color.RED), Position.of('h', 10));
+    assertEquals(100, board.see(Position.of('h', 4), Position.of('h', 10)));
+
+    board.placePiece(new Rook(Color.RED), Position.of('h', 14));
+    assertEquals(-400, board.see(Position.of('h', 4), Position.of('h', 10)));
+
+    // The queen behind the rook recaptures once the rook has gone.
+    board.placePiece(new Queen(Color.YELLOW), Position.of('h', 3));
+    assertEquals(100, board.see(Position.of('h', 4), Position.of('h', 10)));
+  }
+
+  @Test
+  void gameStatusReportsMateAndWinner() {
+    Board board = new Board();
+    board.placePiece(new King(Color.YELLOW), Position.of('d', 1));
+    board.placePiece(new King(Color.RED), Position.of('p', 1));
+    board.placePiece(new Queen(Color.YELLOW), Position.of('m', 2));
+    board.placePiece(new Queen(Color.YELLOW), Position.of('o', 4));
+    assertEquals(GameStatus.State.STALEMATE, board.getGameStatus().getState(Color.RED));
+    assertEquals(GameStatus.State.NO_PIECES, board.getGameStatus().getState(Color.BLUE));
+
+    board.makeMove(Position.of('m', 2), Position.of('o', 2));
+    GameStatus status = board.getGameStatus();
+    assertEquals(GameStatus.State.CHECKMATE, status.getState(Color.RED));
+    assertTrue(status.isGameOver());
+    assertEquals(Color.YELLOW, status.getWinner());
+    assertTrue(board.isEliminated(Color.RED));
+    assertEquals(status.toString(), board.getGameStatus(true).toString());
+  }
+
+  @Test
+  void statusIsRetakenAfterAnElimination() {
+    Board board = new Board();
+    board.placePiece(new King(Color.YELLOW), Position.of('d', 1));
+    board.placePiece(new King(Color.RED), Position.of('p', 1));
+    board.placePiece(new Queen(Color.YELLOW), Position.of('m', 2));
+    board.placePiece(new Queen(Color.YELLOW), Position.of('o', 4));
+    // The red bishop shields the yellow king from the blue rook until Red is mated.
+    board.placePiece(new Bishop(Color.RED), Position.of('d', 8));
+    board.placePiece(new Rook(Color.BLUE), Position.of('d', 14));
+    board.placePiece(new King(Color.BLUE), Position.of('n', 14));
+    assertEquals(GameStatus.State.PLAYING, board.getGameStatus().getState(Color.YELLOW));
+
+    board.makeMove(Position.of('m', 2), Position.of('o', 2));
+    GameStatus status = board.getGameStatus();
+    assertEquals(GameStatus.State.CHECKMATE, status.getState(Color.RED));
+    assertTrue(status.isInCheck(Color.YELLOW));
+    assertEquals(board.getGameStatus(true).getState(Color.YELLOW), status.getState(Color.YELLOW));
+  }
+
+  @Test
+  void binaryFormatRoundTrips() {
+    Board board = kingsAndRook(new Pawn(Color.RED), Position.of('h', 10));
+    board.makeMove(Position.of('h', 4), Position.of('h', 8));
+    byte[] data = board.toBytes();
+    assertEquals(1 + 24 + 3, data.length);
+
+    Board loaded = new Board();
+    loaded.fromBytes(data);
+    assertEquals(board.toNotation(), loaded.toNotation());
+    assertEquals(board.getZobristKey(), loaded.getZobristKey());
+    assertArrayEquals(data, loaded.toBytes());
+    assertThrows(IllegalArgumentException.class, () -> loaded.fromBytes(Arrays.copyOf(data, 26)));
+
+    Board noSideToMove = new Board();
+    noSideToMove.loadPosition("{\"squares\": {}}");
+    assertThrows(IllegalStateException.class, noSideToMove::toBytes);
+  }
+
+  /** Kings on d1 and d13 and a yellow rook on h4, with one more piece at {@code position}. */
+  private static Board kingsAndRook(Piece piece, Position position) {
+    Board board = new Board();
+    board.placePiece(new King(Color.YELLOW), Position.of('d', 1));
+    board.placePiece(new King(Color.RED), Position.of('d', 13));
+    board.placePiece(new Rook(Color.YELLOW), Position.of('h', 4));
+    board.placePiece(piece, position);
+    return board;
+  }
+}
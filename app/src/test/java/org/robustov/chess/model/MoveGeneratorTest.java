@@ -0,0 +1,84 @@
+package org.robustov.chess.model;
+
+import org.junit.jupiter.api.Test;
+import org.robustov.chess.pieces.King;
+import org.robustov.chess.pieces.Knight;
+import org.robustov.chess.pieces.Rook;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveGeneratorTest {
+  // Counts checked against the generator of the baseline (getValidMoves filtered for
+  // captures and king safety), which reloaded the position at every node.
+  @Test
+  void perftMatchesReferenceCounts() throws IOException {
+    Board game = load("game.json");
+    assertEquals(39, perft(game, 1));
+    assertEquals(1553, perft(game, 2));
+    assertEquals(60099, perft(game, 3));
+
+    Board mate = load("mate.json");
+    assertEquals(101, perft(mate, 1));
+    assertEquals(284, perft(mate, 2));
+    assertEquals(30520, perft(mate, 3));
+  }
+
+  @Test
+  void pinnedPieceStaysOnPinRay() {
+    Board board = new Board();
+    board.placePiece(new King(Color.YELLOW), Position.of('e', 3));
+    board.placePiece(new Rook(Color.YELLOW), Position.of('e', 6));
+    board.placePiece(new Rook(Color.RED), Position.of('e', 12));
+    board.placePiece(new King(Color.RED), Position.of('k', 13));
+    assertEquals(Set.of(Position.of('e', 4), Position.of('e', 5), Position.of('e', 7), Position.of('e', 8),
+        Position.of('e', 9), Position.of('e', 10), Position.of('e', 11), Position.of('e', 12)),
+        board.getLegalMoves(Position.of('e', 6)));
+  }
+
+  @Test
+  void doubleCheckAllowsOnlyKingMoves() {
+    Board board = new Board();
+    board.placePiece(new King(Color.YELLOW), Position.of('h', 3));
+    board.placePiece(new Rook(Color.YELLOW), Position.of('c', 5));
+    board.placePiece(new Rook(Color.YELLOW), Position.of('c', 10));
+    board.placePiece(new Rook(Color.RED), Position.of('h', 10));
+    board.placePiece(new Knight(Color.RED), Position.of('g', 5));
+    board.placePiece(new King(Color.RED), Position.of('k', 13));
+    assertTrue(board.isKingInCheck(Color.YELLOW));
+    // i4 is covered by the knight, h4 by the rook.
+    assertEquals(Map.of(Position.of('h', 3), Set.of(Position.of('g', 3), Position.of('g', 4), Position.of('i', 3))),
+        board.legalMoves(Color.YELLOW));
+
+    // Under the rook's check alone, the rooks may capture it or block.
+    board.removePiece(Position.of('g', 5));
+    Map<Position, Set<Position>> moves = board.legalMoves(Color.YELLOW);
+    assertEquals(Set.of(Position.of('h', 5)), moves.get(Position.of('c', 5)));
+    assertEquals(Set.of(Position.of('h', 10)), moves.get(Position.of('c', 10)));
+    assertEquals(4, moves.get(Position.of('h', 3)).size());
+  }
+
+  private static Board load(String name) throws IOException {
+    Board board = new Board();
+    board.loadFile(Path.of("..", name));
+    return board;
+  }
+
+  private static long perft(Board board, int depth) {
+    MoveList moves = new MoveList();
+    board.generateLegalMoves(board.getCurrentPlayer(), moves);
+    if (depth == 1) {
+      return moves.size();
+    }
+    long nodes = 0;
+    for (int i = 0; i < moves.size(); i++) {
+      board.makeMove(moves.get(i));
+      nodes += perft(board, depth - 1);
+      board.unmakeMove();
+    }
+    return nodes;
+  }
+}
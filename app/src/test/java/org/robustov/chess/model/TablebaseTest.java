@@ -0,0 +1,123 @@
+package org.robustov.chess.model;
+
+import org.junit.jupiter.api.Test;
+import org.robustov.chess.pieces.King;
+import org.robustov.chess.pieces.Rook;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TablebaseTest {
+  @Test
+  void generatedTableAgreesWithTheBoard() throws IOException {
+    Path directory = Files.createTempDirectory("tablebase");
+    Path file = directory.resolve(Tablebase.Material.KRK.getFileName());
+    try {
+      TablebaseGenerator generator = new TablebaseGenerator(Tablebase.Material.KRK, 2);
+      generator.generate(file, 60);
+      assertEquals(66, generator.maxDistance());
+      assertFalse(Files.exists(directory.resolve(file.getFileName() + ".part")));
+
+      try (Tablebase tablebase = Tablebase.open(directory)) {
+        assertEquals(Set.of(Tablebase.Material.KRK), tablebase.getMaterials());
+
+        // The weak king is held on the c-file edge: Rh3-c3 mates.
+        Board mate = position("e8", "h3", "c8", Color.YELLOW);
+        assertEquals(Optional.of(new Tablebase.Result(Tablebase.Outcome.WIN, 1)), mate.probeTablebase(tablebase));
+        mate.makeMove(Position.of('h', 3), Position.of('c', 3));
+        assertTrue(mate.isEliminated(Color.RED));
+
+        // The rook is next to the weak king and undefended.
+        Board draw = position("e3", "e8", "e9", Color.RED);
+        assertEquals(Optional.of(new Tablebase.Result(Tablebase.Outcome.DRAW, 0)), draw.probeTablebase(tablebase));
+
+        // An unmoved king and rook may still castle, which the table does not know.
+        Board castling = new Board();
+        castling.placePiece(new King(Color.YELLOW), Position.of('d', 1));
+        castling.placePiece(new Rook(Color.YELLOW), Position.of('a', 1));
+        castling.placePiece(new King(Color.RED), Position.of('e', 9));
+        assertEquals(Optional.empty(), castling.probeTablebase(tablebase));
+
+        SplittableRandom random = new SplittableRandom(1);
+        int checked = 0;
+        while (checked < 300) {
+          Board board = position(randomSquare(random), randomSquare(random), randomSquare(random),
+              random.nextBoolean() ? Color.YELLOW : Color.RED);
+          if (board == null) {
+            continue;
+          }
+          MoveList moves = new MoveList();
+          board.generateLegalMoves(board.getCurrentPlayer(), moves);
+          if (moves.isEmpty() || board.isEliminated(Color.YELLOW) || board.isEliminated(Color.RED)) {
+            continue;
+          }
+          assertEquals(Optional.of(oneMoveOn(board, moves, tablebase)), board.probeTablebase(tablebase),
+              board.toNotation());
+          checked++;
+        }
+      }
+    } finally {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(directory);
+    }
+  }
+
+  /** The result for the side to move, worked out from the table entries one move on. */
+  private static Tablebase.Result oneMoveOn(Board board, MoveList moves, Tablebase tablebase) {
+    Color mover = board.getCurrentPlayer();
+    Color opponent = mover == Color.YELLOW ? Color.RED : Color.YELLOW;
+    int win = Integer.MAX_VALUE;
+    int loss = -1;
+    boolean draw = false;
+    for (int i = 0; i < moves.size(); i++) {
+      board.makeMove(moves.get(i));
+      if (board.isEliminated(opponent)) {
+        win = 1;
+      } else {
+        // Empty once the rook is captured: king against king.
+        Optional<Tablebase.Result> next = board.probeTablebase(tablebase);
+        switch (next.map(Tablebase.Result::outcome).orElse(Tablebase.Outcome.DRAW)) {
+          case WIN -> loss = Math.max(loss, next.get().distance() + 1);
+          case LOSS -> win = Math.min(win, next.get().distance() + 1);
+          case DRAW -> draw = true;
+        }
+      }
+      board.unmakeMove();
+    }
+    return win != Integer.MAX_VALUE ? new Tablebase.Result(Tablebase.Outcome.WIN, win)
+        : draw ? new Tablebase.Result(Tablebase.Outcome.DRAW, 0)
+        : new Tablebase.Result(Tablebase.Outcome.LOSS, loss);
+  }
+
+  private static String randomSquare(SplittableRandom random) {
+    return Position.of(Tablebase.SQUARES[random.nextInt(Tablebase.SLOTS)]).toString();
+  }
+
+  /**
+   * Yellow king and rook against the Red king, all moved, with {@code toMove} to play;
+   * null if the pieces share a square, the kings touch or the side not to move is in check.
+   */
+  private static Board position(String strongKing, String rook, String weakKing, Color toMove) {
+    if (strongKing.equals(rook) || strongKing.equals(weakKing) || rook.equals(weakKing)
+        || Attacks.isKingAttack(Position.of(strongKing).index(), Position.of(weakKing).index())) {
+      return null;
+    }
+    Board board = new Board();
+    board.placePiece(moved(new King(Color.YELLOW)), Position.of(strongKing));
+    board.placePiece(moved(new Rook(Color.YELLOW)), Position.of(rook));
+    board.placePiece(moved(new King(Color.RED)), Position.of(weakKing));
+    String notation = board.toNotation();
+    board.loadNotation(notation.substring(0, notation.length() - 1) + (toMove == Color.YELLOW ? 'y' : 'r'));
+    return board.isKingInCheck(toMove == Color.YELLOW ? Color.RED : Color.YELLOW) ? null : board;
+  }
+
+  private static Piece moved(Piece piece) {
+    piece.setHasMoved(true);
+    return piece;
+  }
+}